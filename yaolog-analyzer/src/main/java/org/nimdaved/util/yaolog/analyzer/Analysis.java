@@ -0,0 +1,74 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics collected from part of the log; one per parsing task, merged at the end
+ */
+final class Analysis {
+
+  private final Map<String, MethodStats> methods = new HashMap<>();
+  private final Map<String, ExceptionStats> exceptions = new HashMap<>();
+  private long records;
+  private long bytes;
+
+  MethodStats method(String method) {
+    return methods.computeIfAbsent(method, MethodStats::new);
+  }
+
+  /**
+   * Counts exception occurrence; the trace of the first one is kept
+   * @param exception class name
+   * @param topFrame first stack trace frame
+   * @param method logged method or empty
+   * @param text record text with line breaks restored
+   * @param traceStart start of the stack trace in the text
+   */
+  void exception(String exception, String topFrame, String method, String text, int traceStart) {
+    ExceptionStats stats = exceptions.get(exception + " " + topFrame);
+    if (stats == null) {
+      stats = new ExceptionStats(exception, RecordParser.utf8(topFrame),
+          RecordParser.utf8(method), RecordParser.utf8(text.substring(traceStart)));
+      exceptions.put(exception + " " + topFrame, stats);
+    }
+    stats.occurred();
+  }
+
+  void record() {
+    records++;
+  }
+
+  void bytes(long count) {
+    bytes += count;
+  }
+
+  void merge(Analysis other) {
+    other.methods.forEach((k, v) -> methods.merge(k, v, (a, b) -> {
+      a.merge(b);
+      return a;
+    }));
+    other.exceptions.forEach((k, v) -> exceptions.merge(k, v, (a, b) -> {
+      a.merge(b);
+      return a;
+    }));
+    records += other.records;
+    bytes += other.bytes;
+  }
+
+  Map<String, MethodStats> getMethods() {
+    return methods;
+  }
+
+  Map<String, ExceptionStats> getExceptions() {
+    return exceptions;
+  }
+
+  long getRecords() {
+    return records;
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+}
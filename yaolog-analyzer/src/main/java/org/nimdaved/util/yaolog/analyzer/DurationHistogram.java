@@ -0,0 +1,73 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+/**
+ * Log-linear histogram of method durations in msec, exact below 32 msec, ~3% precision above.
+ * Single writer; merge after the writers are done
+ */
+final class DurationHistogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+
+  private final long[] counts = new long[64 << SUB_BITS];
+  private long total;
+  private long max;
+
+  void record(long millis) {
+    long value = Math.max(0, millis);
+    counts[index(value)]++;
+    total++;
+    max = Math.max(max, value);
+  }
+
+  void merge(DurationHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    total += other.total;
+    max = Math.max(max, other.max);
+  }
+
+  long getTotal() {
+    return total;
+  }
+
+  long getMax() {
+    return max;
+  }
+
+  /**
+   * @param percentile 0..100
+   * @return lower bound of the bucket holding the percentile, msec
+   */
+  long percentile(double percentile) {
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return lowerBound(i);
+      }
+    }
+    return 0;
+  }
+
+  private static int index(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+    return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+  }
+
+  private static long lowerBound(int index) {
+    int group = index >>> SUB_BITS;
+    int sub = index & (SUB_COUNT - 1);
+    if (group == 0) {
+      return sub;
+    }
+    int exponent = group + SUB_BITS - 1;
+    return (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+  }
+}
@@ -0,0 +1,54 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+/**
+ * Occurrences of one exception type thrown at one place, with the first reconstructed trace
+ */
+final class ExceptionStats {
+
+  private final String exception;
+  private final String topFrame;
+  private final String method;
+  private final String trace;
+  private long count;
+
+  ExceptionStats(String exception, String topFrame, String method, String trace) {
+    this.exception = exception;
+    this.topFrame = topFrame;
+    this.method = method;
+    this.trace = trace;
+  }
+
+  void occurred() {
+    count++;
+  }
+
+  void merge(ExceptionStats other) {
+    count += other.count;
+  }
+
+  String getException() {
+    return exception;
+  }
+
+  String getTopFrame() {
+    return topFrame;
+  }
+
+  /**
+   * @return method of the first occurrence, empty when not logged by the aspect
+   */
+  String getMethod() {
+    return method;
+  }
+
+  /**
+   * @return stack trace of the first occurrence, lines separated by '\n'
+   */
+  String getTrace() {
+    return trace;
+  }
+
+  long getCount() {
+    return count;
+  }
+}
@@ -0,0 +1,203 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline analyzer of LogUtil output. Memory maps the log files (current and rotated, plain,
+ * gzipped or block compressed), splits them on record boundaries and parses the chunks in
+ * parallel. Reports per method call counts, error rates and duration percentiles from "Method
+ * duration" lines, and the most frequent exceptions with stack traces reconstructed from
+ * NEW_LINE_MARKER.
+ * <p>Usage: LogAnalyzer file|directory ... [options], options:
+ * <pre>
+ * --threads=N     parsing threads, default available processors
+ * --chunk=MB      nominal chunk size, default 64
+ * --top=N         methods and exceptions to report, default 20
+ * --sort=S        calls, errors, error_rate, stuck, p99 or max, default calls
+ * --frames=N      stack trace frames to print per exception, default 5
+ * </pre>
+ * Run with gradle :yaolog-analyzer:run --args="logs/app.log logs/app.log.1.gz --top=50"
+ */
+public final class LogAnalyzer {
+
+  private static final long MB = 1024 * 1024;
+  private static final long MAX_CHUNK_SIZE = 1024 * MB;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    List<Path> files = new ArrayList<>();
+    int threads = Runtime.getRuntime().availableProcessors();
+    long chunkSize = 64 * MB;
+    int top = 20;
+    String sort = "calls";
+    int frames = 5;
+    for (String arg : args) {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(value);
+      } else if (arg.startsWith("--chunk=")) {
+        chunkSize = Math.min(MAX_CHUNK_SIZE, Long.parseLong(value) * MB);
+      } else if (arg.startsWith("--top=")) {
+        top = Integer.parseInt(value);
+      } else if (arg.startsWith("--sort=")) {
+        sort = value;
+      } else if (arg.startsWith("--frames=")) {
+        frames = Integer.parseInt(value);
+      } else if (arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      } else {
+        files.addAll(logFiles(Paths.get(arg)));
+      }
+    }
+    if (files.isEmpty()) {
+      System.err.println("Usage: LogAnalyzer file|directory ... [--threads=N] [--chunk=MB] "
+          + "[--top=N] [--sort=calls|errors|error_rate|stuck|p99|max] [--frames=N]");
+      System.exit(1);
+    }
+
+    long started = System.nanoTime();
+    Analysis analysis = analyze(files, threads, chunkSize);
+    double seconds = (System.nanoTime() - started) / 1e9;
+
+    System.out.println(String.format(Locale.ROOT,
+        "Parsed %d records, %.1f MB in %d files in %.2f sec, %d threads", analysis.getRecords(),
+        (double) analysis.getBytes() / MB, files.size(), seconds, threads));
+    System.out.println();
+    printMethods(analysis, comparator(sort), top);
+    System.out.println();
+    printExceptions(analysis, top, frames);
+  }
+
+  /**
+   * Parses the files in parallel
+   * @param files log files
+   * @param threads parsing threads
+   * @param chunkSize nominal chunk size, bytes
+   * @return merged statistics
+   * @throws IOException when a file could not be read
+   * @throws InterruptedException when interrupted while waiting for the tasks
+   */
+  static Analysis analyze(List<Path> files, int threads, long chunkSize)
+      throws IOException, InterruptedException {
+    List<LogChunk> chunks = new ArrayList<>();
+    for (Path file : files) {
+      chunks.addAll(LogChunk.split(file, chunkSize));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      List<Future<Analysis>> results = executor.invokeAll(chunks);
+      Analysis analysis = new Analysis();
+      for (int i = 0; i < results.size(); i++) {
+        try {
+          // chunk order keeps the first trace of each exception
+          analysis.merge(results.get(i).get());
+        } catch (ExecutionException e) {
+          throw new IOException("Could not parse " + chunks.get(i), e.getCause());
+        }
+      }
+      return analysis;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Log files of the directory, oldest rotated first; the file itself otherwise
+   */
+  private static List<Path> logFiles(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return List.of(path);
+    }
+    try (Stream<Path> files = Files.list(path)) {
+      return files.filter(Files::isRegularFile)
+          .filter(f -> f.getFileName().toString().contains(".log"))
+          .filter(f -> !f.getFileName().toString().endsWith(LogChunk.INDEX_SUFFIX))
+          .sorted(Comparator.comparing(LogAnalyzer::lastModified)).collect(Collectors.toList());
+    }
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Comparator<MethodStats> comparator(String sort) {
+    switch (sort) {
+      case "calls":
+        return Comparator.comparingLong(MethodStats::getCalls);
+      case "errors":
+        return Comparator.comparingLong(MethodStats::getErrors);
+      case "error_rate":
+        return Comparator.comparingDouble(MethodStats::getErrorRate);
+      case "p99":
+        return Comparator.comparingLong(m -> m.getDurations().percentile(99));
+      case "max":
+        return Comparator.comparingLong(m -> m.getDurations().getMax());
+      case "stuck":
+        return Comparator.comparingLong(MethodStats::getStuck);
+      default:
+        throw new IllegalArgumentException("Unknown sort: " + sort);
+    }
+  }
+
+  private static void printMethods(Analysis analysis, Comparator<MethodStats> comparator,
+      int top) {
+    List<MethodStats> methods = analysis.getMethods().values().stream()
+        .sorted(comparator.reversed().thenComparing(MethodStats::getMethod)).limit(top)
+        .collect(Collectors.toList());
+    int width = methods.stream().mapToInt(m -> RecordParser.utf8(m.getMethod()).length()).max()
+        .orElse(6);
+    String format = "%-" + width + "s %10s %8s %7s %6s %8s %8s %8s %8s %8s%n";
+    System.out.printf(Locale.ROOT, format, "method", "calls", "errors", "error%", "stuck", "timed",
+        "p50_ms", "p90_ms", "p99_ms", "max_ms");
+    for (MethodStats m : methods) {
+      DurationHistogram d = m.getDurations();
+      boolean timed = d.getTotal() > 0;
+      System.out.printf(Locale.ROOT, format, RecordParser.utf8(m.getMethod()), m.getCalls(),
+          m.getErrors(), String.format(Locale.ROOT, "%.2f", m.getErrorRate() * 100), m.getStuck(),
+          d.getTotal(),
+          timed ? d.percentile(50) : "", timed ? d.percentile(90) : "",
+          timed ? d.percentile(99) : "", timed ? d.getMax() : "");
+    }
+  }
+
+  private static void printExceptions(Analysis analysis, int top, int frames) {
+    List<ExceptionStats> exceptions = analysis.getExceptions().values().stream()
+        .sorted(Comparator.comparingLong(ExceptionStats::getCount).reversed()
+            .thenComparing(ExceptionStats::getException))
+        .limit(top).collect(Collectors.toList());
+    System.out.println("Top exceptions");
+    for (ExceptionStats e : exceptions) {
+      System.out.println(String.format(Locale.ROOT, "%8d %s at %s%s", e.getCount(),
+          e.getException(), e.getTopFrame(),
+          e.getMethod().isEmpty() ? "" : ", first in " + e.getMethod()));
+      String[] lines = e.getTrace().split("\n");
+      int printed = 0;
+      for (String line : lines) {
+        if (line.trim().startsWith("at ") && printed++ >= frames) {
+          continue;
+        }
+        System.out.println("         " + line);
+      }
+    }
+  }
+
+  private LogAnalyzer() {
+  }
+}
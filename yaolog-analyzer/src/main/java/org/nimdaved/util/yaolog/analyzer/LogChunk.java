@@ -0,0 +1,307 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Part of a log file that starts at a record boundary, parsed by one task. Records start with a
+ * line beginning with a digit (the timestamp of the default patterns); other lines, e.g. stack
+ * traces logged by the appender, continue the previous record. Plain files are memory mapped;
+ * gzipped rotated files and block compressed files of BatchingFileAppender (compressed=true,
+ * recognized by the ".idx" sidecar or the block magic) are read whole by one task. Lines are
+ * decoded as ISO-8859-1, see {@link RecordParser}
+ */
+final class LogChunk implements Callable<Analysis> {
+
+  private static final String GZIP_SUFFIX = ".gz";
+  static final String INDEX_SUFFIX = ".idx";
+  // BlockFileChannel's block header: int magic 'YLZB', int compressed length, int raw length
+  private static final int BLOCK_MAGIC = 0x594C5A42;
+  private static final int BLOCK_HEADER_SIZE = 12;
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+  private static final int WINDOW_SIZE = 1024 * 1024;
+
+  private final Path file;
+  private final long start;
+  private final long end;
+
+  private LogChunk(Path file, long start, long end) {
+    this.file = file;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Splits the file on record boundaries
+   * @param file log file
+   * @param chunkSize nominal chunk size, bytes
+   * @return chunks in file order
+   * @throws IOException when the file could not be read
+   */
+  static List<LogChunk> split(Path file, long chunkSize) throws IOException {
+    List<LogChunk> chunks = new ArrayList<>();
+    if (file.getFileName().toString().endsWith(GZIP_SUFFIX) || isBlockFile(file)) {
+      chunks.add(new LogChunk(file, 0, -1));
+      return chunks;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long from = 0;
+      while (from < size) {
+        long to = from + chunkSize >= size ? size : recordStart(channel, from + chunkSize, size);
+        chunks.add(new LogChunk(file, from, to));
+        from = to;
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * @return position of the first record start at or after the position, or size
+   */
+  private static long recordStart(FileChannel channel, long position, long size)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    long offset = position - 1;
+    byte previous = 0;
+    while (offset < size) {
+      buffer.clear();
+      int read = channel.read(buffer, offset);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        byte b = buffer.get(i);
+        if (previous == '\n' && isRecordStart(b)) {
+          return offset + i;
+        }
+        previous = b;
+      }
+      offset += read;
+    }
+    return size;
+  }
+
+  private static boolean isBlockFile(Path file) throws IOException {
+    if (Files.exists(file.resolveSibling(file.getFileName() + INDEX_SUFFIX))) {
+      return true;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+        // read whole magic
+      }
+      return !magic.hasRemaining() && magic.getInt(0) == BLOCK_MAGIC;
+    }
+  }
+
+  private static boolean isRecordStart(int b) {
+    return b >= '0' && b <= '9';
+  }
+
+  @Override
+  public Analysis call() throws IOException {
+    Analysis analysis = new Analysis();
+    RecordParser parser = new RecordParser(analysis);
+    if (end < 0) {
+      InputStream in = new BufferedInputStream(Files.newInputStream(file), SCAN_BUFFER_SIZE);
+      parseStream(parser, file.getFileName().toString().endsWith(GZIP_SUFFIX)
+          ? new GZIPInputStream(in, SCAN_BUFFER_SIZE) : new BlockInputStream(in));
+      analysis.bytes(Files.size(file));
+    } else {
+      parseMapped(parser);
+      analysis.bytes(end - start);
+    }
+    return analysis;
+  }
+
+  private void parseMapped(RecordParser parser) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+    Records records = new Records(parser);
+    // lines are decoded from a window copied in bulk from the mapping
+    byte[] window = new byte[WINDOW_SIZE];
+    int windowLength = 0;
+    int position = 0;
+    int limit = buffer.limit();
+    while (position < limit || windowLength > 0) {
+      int read = Math.min(window.length - windowLength, limit - position);
+      buffer.get(position, window, windowLength, read);
+      position += read;
+      windowLength += read;
+      int lineStart = 0;
+      for (int i = 0; i < windowLength; i++) {
+        if (window[i] == '\n') {
+          records.line(decode(window, lineStart, i));
+          lineStart = i + 1;
+        }
+      }
+      if (position == limit) {
+        if (lineStart < windowLength) {
+          // no line separator at the end
+          records.line(decode(window, lineStart, windowLength));
+        }
+        windowLength = 0;
+      } else {
+        windowLength -= lineStart;
+        if (lineStart == 0) {
+          // line longer than the window
+          window = Arrays.copyOf(window, window.length * 2);
+        } else {
+          System.arraycopy(window, lineStart, window, 0, windowLength);
+        }
+      }
+    }
+    records.flush();
+  }
+
+  private static String decode(byte[] bytes, int from, int to) {
+    int end = to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+    return new String(bytes, from, end - from, StandardCharsets.ISO_8859_1);
+  }
+
+  private static void parseStream(RecordParser parser, InputStream in) throws IOException {
+    Records records = new Records(parser);
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(in, StandardCharsets.ISO_8859_1))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        records.line(line);
+      }
+    }
+    records.flush();
+  }
+
+  /**
+   * Content of the Deflate compressed blocks, concatenated; a line may span blocks
+   */
+  private static final class BlockInputStream extends InputStream {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    // offset of the block being inflated and of the next one
+    private long offset;
+    private long next;
+
+    BlockInputStream(InputStream in) {
+      this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      try {
+        int n;
+        while ((n = inflater.inflate(b, off, len)) == 0) {
+          if (inflater.needsDictionary()) {
+            throw new IOException("Corrupted block at " + offset + " of compressed log file");
+          }
+          if (!nextBlock()) {
+            return -1;
+          }
+        }
+        return n;
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupted block at " + offset + " of compressed log file", e);
+      }
+    }
+
+    private boolean nextBlock() throws IOException {
+      int magic;
+      try {
+        magic = in.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      offset = next;
+      if (magic != BLOCK_MAGIC) {
+        throw new IOException("Not a block of compressed log file at " + offset);
+      }
+      byte[] compressed = new byte[in.readInt()];
+      // raw length
+      in.readInt();
+      in.readFully(compressed);
+      next += BLOCK_HEADER_SIZE + compressed.length;
+      inflater.reset();
+      inflater.setInput(compressed);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      inflater.end();
+      in.close();
+    }
+  }
+
+  /**
+   * Collects record lines; single line records, the most common, are parsed without copying
+   */
+  private static final class Records {
+    private final RecordParser parser;
+    private final StringBuilder continued = new StringBuilder(256);
+    private String first;
+
+    Records(RecordParser parser) {
+      this.parser = parser;
+    }
+
+    void line(String line) {
+      if (!line.isEmpty() && isRecordStart(line.charAt(0))) {
+        flush();
+        first = line;
+      } else if (first == null && continued.length() == 0) {
+        // continuation of the record of the previous chunk or file start
+        continued.append(line);
+      } else {
+        if (first != null) {
+          continued.append(first);
+          first = null;
+        }
+        continued.append('\n').append(line);
+      }
+    }
+
+    void flush() {
+      if (first != null) {
+        parser.parse(first);
+        first = null;
+      } else if (continued.length() > 0) {
+        parser.parse(continued.toString());
+        continued.setLength(0);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return file + (end < 0 ? "" : " [" + start + ", " + end + ")");
+  }
+}
@@ -0,0 +1,82 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+/**
+ * Counters of one logged method: entries, exits, failures, stuck calls and duration histogram
+ */
+final class MethodStats {
+
+  private final String method;
+  private long entries;
+  private long exits;
+  private long errors;
+  // repeated calls collapsed into "Method burst" lines
+  private long collapsed;
+  // calls reported by the watchdog past their deadline
+  private long stuck;
+  private final DurationHistogram durations = new DurationHistogram();
+
+  MethodStats(String method) {
+    this.method = method;
+  }
+
+  void entry() {
+    entries++;
+  }
+
+  void exit() {
+    exits++;
+  }
+
+  void error() {
+    errors++;
+  }
+
+  void collapsed(long calls) {
+    collapsed += calls;
+  }
+
+  void stuck() {
+    stuck++;
+  }
+
+  void duration(long millis) {
+    durations.record(millis);
+  }
+
+  void merge(MethodStats other) {
+    entries += other.entries;
+    exits += other.exits;
+    errors += other.errors;
+    collapsed += other.collapsed;
+    stuck += other.stuck;
+    durations.merge(other.durations);
+  }
+
+  String getMethod() {
+    return method;
+  }
+
+  /**
+   * @return entries, or completions when entries are not logged, and collapsed calls
+   */
+  long getCalls() {
+    return Math.max(entries, Math.max(exits + errors, durations.getTotal())) + collapsed;
+  }
+
+  long getErrors() {
+    return errors;
+  }
+
+  long getStuck() {
+    return stuck;
+  }
+
+  double getErrorRate() {
+    long calls = getCalls();
+    return calls == 0 ? 0 : (double) errors / calls;
+  }
+
+  DurationHistogram getDurations() {
+    return durations;
+  }
+}
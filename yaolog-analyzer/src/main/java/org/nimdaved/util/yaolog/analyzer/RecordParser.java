@@ -0,0 +1,219 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses one log record (first line with "logger : message" and continuation lines) written by
+ * LogUtil:
+ * <pre>
+ * Method entry: name; parameter names- [..]; parameters- [..]
+ * Method exit: name; return value: ..
+ * name: Method duration: 12 msec.
+ * name: Method burst: 120 calls by caller, total 340 msec., max 12 msec.
+ * Could not name; parameter names- [..]; parameters- [..] | Message | Root message, trace
+ * propagated through name: java.lang.IllegalStateException: message
+ * </pre>
+ * Line breaks LogUtil replaced with NEW_LINE_MARKER are restored to reconstruct stack traces.
+ * Records are UTF-8 bytes decoded as ISO-8859-1, one char per byte, which is several times
+ * faster than UTF-8 decoding of lines with the marker; strings kept for the report are decoded
+ * with {@link #utf8(String)}. Not thread safe
+ */
+final class RecordParser {
+
+  // UTF-8 bytes of StringReplacer's \u2028 marker decoded as ISO-8859-1
+  static final String NEW_LINE_MARKER = "\u00E2\u0080\u00A8";
+
+  private static final String LOGGER_SEPARATOR = " : ";
+  private static final String METHOD_ENTRY = "Method entry: ";
+  private static final String METHOD_EXIT = "Method exit: ";
+  private static final String METHOD_DURATION = ": Method duration: ";
+  private static final String METHOD_DURATION_PREFIX = "Method duration: ";
+  private static final String METHOD_BURST = ": Method burst: ";
+  private static final String METHOD_RUNNING = ": Method still running: ";
+  private static final String METHOD_EXIT_WITH_EXCEPTION = "Could not ";
+  private static final String PROPAGATED_THROUGH = "propagated through ";
+  private static final String FRAME = "at ";
+  private static final String CAUSED_BY = "Caused by: ";
+
+  private final Analysis analysis;
+
+  RecordParser(Analysis analysis) {
+    this.analysis = analysis;
+  }
+
+  /**
+   * @param record first line and continuation lines separated by '\n', without trailing
+   *        line separator
+   */
+  void parse(String record) {
+    analysis.record();
+    int separator = record.indexOf(LOGGER_SEPARATOR);
+    int messageStart = separator < 0 ? 0 : separator + LOGGER_SEPARATOR.length();
+    String logger = separator < 0 ? "" : lastToken(record, separator);
+
+    int i;
+    if ((i = record.indexOf(METHOD_ENTRY, messageStart)) >= 0) {
+      method(logger, name(record, i + METHOD_ENTRY.length())).entry();
+    } else if ((i = record.indexOf(METHOD_EXIT, messageStart)) >= 0) {
+      method(logger, name(record, i + METHOD_EXIT.length())).exit();
+    } else if ((i = record.indexOf(METHOD_DURATION, messageStart)) >= 0) {
+      duration(method(logger, lastToken(record, i)), record, i + METHOD_DURATION.length());
+    } else if ((i = record.indexOf(METHOD_BURST, messageStart)) >= 0) {
+      // first call of the burst is logged as usual
+      long calls = number(record, i + METHOD_BURST.length());
+      if (calls > 1) {
+        method(logger, lastToken(record, i)).collapsed(calls - 1);
+      }
+    } else if ((i = record.indexOf(METHOD_RUNNING, messageStart)) >= 0) {
+      // watchdog line, the stack is of a live call
+      method(logger, lastToken(record, i)).stuck();
+    } else if (record.startsWith(METHOD_DURATION_PREFIX, messageStart)) {
+      // StringReplacer.methodDurationMessage: "Method duration: name: 12 msec"
+      int name = messageStart + METHOD_DURATION_PREFIX.length();
+      int colon = record.indexOf(": ", name);
+      if (colon > 0) {
+        duration(method(logger, record.substring(name, colon)), record, colon + 2);
+      }
+    } else if (record.startsWith(METHOD_EXIT_WITH_EXCEPTION, messageStart)) {
+      // only at the message start: "Could not " is common in other messages and traces
+      i = messageStart;
+      String method = name(record, i + METHOD_EXIT_WITH_EXCEPTION.length());
+      method(logger, method).error();
+      exception(record, i, method);
+    } else if ((i = record.indexOf(PROPAGATED_THROUGH, messageStart)) >= 0) {
+      // stack trace is logged by inner frame
+      method(logger, name(record, i + PROPAGATED_THROUGH.length())).error();
+    } else if (record.indexOf('\n', messageStart) >= 0
+        || record.indexOf(NEW_LINE_MARKER, messageStart) >= 0) {
+      // logged throwable, e.g. errorMethodException: "logger  | Message | Root message, trace"
+      exception(record, messageStart, "");
+    }
+  }
+
+  private MethodStats method(String logger, String name) {
+    return analysis.method(logger.isEmpty() || name.contains("::") ? name : logger + "." + name);
+  }
+
+  private static void duration(MethodStats stats, String record, int from) {
+    long millis = number(record, from);
+    if (millis >= 0) {
+      // "unknown. Start time is missing" otherwise
+      stats.duration(millis);
+    }
+  }
+
+  /**
+   * @return decimal number at the position, or -1
+   */
+  private static long number(String record, int from) {
+    long number = 0;
+    int i = from;
+    while (i < record.length() && record.charAt(i) >= '0' && record.charAt(i) <= '9') {
+      number = number * 10 + record.charAt(i++) - '0';
+    }
+    return i > from ? number : -1;
+  }
+
+  /**
+   * Finds the stack trace in the record: lines after the marker or continuation lines, the
+   * first "at " frame and the exception line above it
+   */
+  private void exception(String record, int from, String method) {
+    String text = record.substring(from).replace(NEW_LINE_MARKER, "\n");
+    int frame = text.indexOf("\n\t" + FRAME);
+    if (frame < 0) {
+      frame = text.indexOf("\n" + FRAME);
+    }
+    if (frame < 0) {
+      // digest without stack trace
+      return;
+    }
+    int headerEnd = frame;
+    while (headerEnd > 0) {
+      int headerStart = text.lastIndexOf('\n', headerEnd - 1) + 1;
+      String header = text.substring(headerStart, headerEnd);
+      if (header.startsWith(CAUSED_BY)) {
+        header = header.substring(CAUSED_BY.length());
+      }
+      String exception = exceptionClass(header);
+      if (exception != null) {
+        int frameEnd = text.indexOf('\n', frame + 1);
+        String topFrame = text.substring(frame + 1, frameEnd < 0 ? text.length() : frameEnd)
+            .trim().substring(FRAME.length());
+        analysis.exception(exception, topFrame, method, text, headerStart);
+        return;
+      }
+      headerEnd = headerStart - 1;
+    }
+  }
+
+  /**
+   * @return class name the line starts with, followed by ':' or the line end, or null
+   */
+  private static String exceptionClass(String line) {
+    int end = line.indexOf(':');
+    String name = end < 0 ? line : line.substring(0, end);
+    if (name.indexOf('.') < 0) {
+      return null;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!Character.isJavaIdentifierPart(c) && c != '.') {
+        return null;
+      }
+    }
+    return name;
+  }
+
+  /**
+   * Method name at the position: "name", "name;", "name:" or "Type::name"
+   */
+  private static String name(String record, int from) {
+    int i = from;
+    while (i < record.length()) {
+      char c = record.charAt(i);
+      if (c == ':' && i + 1 < record.length() && record.charAt(i + 1) == ':') {
+        i += 2;
+      } else if (c == ' ' || c == ';' || c == ':' || c == ',' || c == '\n'
+          || c == NEW_LINE_MARKER.charAt(0)) {
+        break;
+      } else {
+        i++;
+      }
+    }
+    if (i > from && record.charAt(i - 1) == '.') {
+      // "Could not name. message"
+      i--;
+    }
+    return record.substring(from, i);
+  }
+
+  /**
+   * Decodes string of UTF-8 bytes decoded as ISO-8859-1
+   * @param latin1 one char per byte
+   * @return decoded string
+   */
+  static String utf8(String latin1) {
+    for (int i = 0; i < latin1.length(); i++) {
+      if (latin1.charAt(i) > 0x7F) {
+        return new String(latin1.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+      }
+    }
+    return latin1;
+  }
+
+  /**
+   * Whitespace delimited token before the position
+   */
+  private static String lastToken(String record, int end) {
+    int i = end;
+    while (i > 0 && record.charAt(i - 1) == ' ') {
+      i--;
+    }
+    int tokenEnd = i;
+    while (i > 0 && !Character.isWhitespace(record.charAt(i - 1))) {
+      i--;
+    }
+    return record.substring(i, tokenEnd);
+  }
+}
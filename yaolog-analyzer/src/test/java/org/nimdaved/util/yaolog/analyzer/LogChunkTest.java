@@ -0,0 +1,66 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.Deflater;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogChunkTest {
+
+  private static final String LOG =
+      "2024-01-15 10:00:00.123 INFO [main] com.x.Service : save: Method duration: 12 msec.\n"
+      + "2024-01-15 10:00:00.124 INFO [main] com.x.Service : save: Method duration: 30 msec.\n";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void blockCompressedFileIsInflated() throws Exception {
+    Path file = dir.resolve("app.log");
+    byte[] text = LOG.getBytes(StandardCharsets.UTF_8);
+    // the second record starts in the second block
+    int split = LOG.indexOf('\n') + 20;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    block(new DataOutputStream(out), text, 0, split);
+    block(new DataOutputStream(out), text, split, text.length - split);
+    Files.write(file, out.toByteArray());
+
+    List<LogChunk> chunks = LogChunk.split(file, 16);
+    assertEquals(1, chunks.size());
+    MethodStats stats = chunks.get(0).call().getMethods().get("com.x.Service.save");
+    assertEquals(2, stats.getDurations().getTotal());
+    assertEquals(30, stats.getDurations().getMax());
+  }
+
+  @Test
+  void plainFileIsSplitOnRecords() throws Exception {
+    Path file = dir.resolve("app.log");
+    Files.write(file, LOG.getBytes(StandardCharsets.UTF_8));
+
+    List<LogChunk> chunks = LogChunk.split(file, 16);
+    assertEquals(2, chunks.size());
+    assertEquals(1, chunks.get(1).call().getMethods().get("com.x.Service.save").getCalls());
+  }
+
+  private static void block(DataOutputStream out, byte[] text, int from, int length)
+      throws IOException {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    deflater.setInput(text, from, length);
+    deflater.finish();
+    byte[] compressed = new byte[length + 64];
+    int compressedLength = deflater.deflate(compressed);
+    deflater.end();
+    out.writeInt(0x594C5A42);
+    out.writeInt(compressedLength);
+    out.writeInt(length);
+    out.write(compressed, 0, compressedLength);
+  }
+}
@@ -0,0 +1,92 @@
+package org.nimdaved.util.yaolog.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RecordParserTest {
+
+  private static final String PREFIX =
+      "2024-01-15 10:00:00.123  INFO 1 --- [main] com.x.Service            : ";
+  private static final String METHOD = "com.x.Service.save";
+  private static final String MARKER = RecordParser.NEW_LINE_MARKER;
+
+  private final Analysis analysis = new Analysis();
+  private final RecordParser parser = new RecordParser(analysis);
+
+  @Test
+  void methodEntry() {
+    parser.parse(PREFIX + "com.x.Service Method entry: save; parameter names- [id]; "
+        + "parameters- [1]");
+    assertEquals(1, stats().getCalls());
+  }
+
+  @Test
+  void methodExit() {
+    parser.parse(PREFIX + "com.x.Service Method exit: save; return value: ok");
+    assertEquals(1, stats().getCalls());
+    assertEquals(0, stats().getErrors());
+  }
+
+  @Test
+  void methodDuration() {
+    parser.parse(PREFIX + "save: Method duration: 12 msec.");
+    assertEquals(1, stats().getDurations().getTotal());
+    assertEquals(12, stats().getDurations().getMax());
+  }
+
+  @Test
+  void methodDurationWithNameAfter() {
+    parser.parse(PREFIX + "Method duration: save: 7 msec");
+    assertEquals(7, stats().getDurations().getMax());
+  }
+
+  @Test
+  void methodBurst() {
+    parser.parse(PREFIX + "save: Method burst: 120 calls by caller, total 340 msec., "
+        + "max 12 msec.");
+    assertEquals(119, stats().getCalls());
+  }
+
+  @Test
+  void methodStillRunning() {
+    parser.parse(PREFIX + "save: Method still running: 5000 msec.");
+    assertEquals(1, stats().getStuck());
+  }
+
+  @Test
+  void methodExitWithException() {
+    parser.parse(PREFIX + "Could not save; parameter names- [id]; parameters- [1]"
+        + " | boom | boom, trace" + MARKER + "java.lang.IllegalStateException: boom" + MARKER
+        + "\tat com.x.Service.save(Service.java:10)");
+    assertEquals(1, stats().getErrors());
+    ExceptionStats exception = analysis.getExceptions().values().iterator().next();
+    assertEquals("java.lang.IllegalStateException", exception.getException());
+    assertEquals("com.x.Service.save(Service.java:10)", exception.getTopFrame());
+  }
+
+  @Test
+  void propagatedThrough() {
+    parser.parse(PREFIX + "com.x.Service propagated through save: "
+        + "java.lang.IllegalStateException: boom");
+    assertEquals(1, stats().getErrors());
+    assertTrue(analysis.getExceptions().isEmpty());
+  }
+
+  @Test
+  void couldNotInsideMessageIsNotMethodFailure() {
+    parser.parse(PREFIX + "Retry scheduled: Could not connect to db");
+    parser.parse(PREFIX + "Retry scheduled" + MARKER + "java.lang.IllegalStateException: "
+        + "Could not connect" + MARKER + "\tat com.x.Client.connect(Client.java:5)");
+    assertTrue(analysis.getMethods().isEmpty(), analysis.getMethods().keySet().toString());
+    assertEquals(1, analysis.getExceptions().size());
+    assertEquals(2, analysis.getRecords());
+  }
+
+  private MethodStats stats() {
+    MethodStats stats = analysis.getMethods().get(METHOD);
+    assertTrue(stats != null, analysis.getMethods().keySet().toString());
+    return stats;
+  }
+}
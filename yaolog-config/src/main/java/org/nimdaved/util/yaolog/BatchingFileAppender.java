@@ -0,0 +1,754 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * High throughput file appender. Logging threads only enqueue events into a bounded lock-free
+ * queue; a single writer thread encodes them into a reusable direct buffer and writes batches
+ * through FileChannel. Logging threads never wait for the disk; under pressure events are shed
+ * in stages, driven by free queue capacity and by average write latency:
+ * 1. Free capacity below shedDebugThreshold or write latency above slowWriteMillis: DEBUG and
+ * TRACE events are dropped. Average write latency decays on every idle flush interval, so the
+ * stage clears when shed events leave nothing to write
+ * 2. Free capacity below shedLoggersThreshold or write latency above twice slowWriteMillis:
+ * INFO events of loggers ending with shedLoggerSuffixes (AOP auto logging of *Controller and
+ * *Client) are dropped
+ * 3. Free capacity below discardingThreshold: events at or below discardLevel are dropped
+ * 4. Queue is full: all events below ERROR are dropped
+ * ERROR events are never dropped; they overflow into an unbounded side queue, which the
+ * writer drains ahead of the main queue.
+ * Dropped events are counted per level and per logger and reported in the log file.
+ * With compressed=true the file is written in Deflate compressed blocks of about blockSize
+ * bytes, with sidecar index of block time ranges and level/logger filters; see
+ * {@link BlockFileChannel} and {@link BlockLogReader}.
+ * With yaolog-util on the class path events carry LogContext of the logging thread, rendered by
+ * %yctx of LogContextConverter.
+ * Usage in logback.xml:
+ * <pre>
+ * &lt;appender name="YAOLOG_FILE" class="org.nimdaved.util.yaolog.BatchingFileAppender"&gt;
+ *   &lt;file&gt;logs/app.log&lt;/file&gt;
+ *   &lt;encoder&gt;&lt;pattern&gt;%d %-5level [%thread] %logger : %msg%n&lt;/pattern&gt;&lt;/encoder&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class BatchingFileAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+  private static final int DEFAULT_QUEUE_SIZE = 8192;
+  private static final int UNDEFINED = -1;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final Level[] LEVELS =
+      {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+  private static final int DEBUG = 1;
+  private static final int INFO = 2;
+  private static final int ERROR = 4;
+  private static final int SHED_DEBUG = 1;
+  private static final int SHED_LOGGERS = 2;
+  private static final int SHED_DISCARD_LEVEL = 3;
+  // weight of the latest write in the average write latency
+  private static final int LATENCY_SMOOTHING = 8;
+  private static final String LOG_CONTEXT_CAPTURE =
+      "org.nimdaved.util.yaolog.LogContextEvent$Capture";
+  // keeps yaolog-util LogContext of the logging thread with the event; identity without yaolog-util
+  private static final UnaryOperator<ILoggingEvent> CONTEXT_CAPTURE = contextCapture();
+
+  private String file;
+  private Encoder<ILoggingEvent> encoder;
+  private int queueSize = DEFAULT_QUEUE_SIZE;
+  private int batchSize = 512;
+  private long flushIntervalMillis = 1000;
+  private int bufferSize = 256 * 1024;
+  private int discardingThreshold = UNDEFINED;
+  private int shedDebugThreshold = UNDEFINED;
+  private int shedLoggersThreshold = UNDEFINED;
+  private String[] shedLoggerSuffixes = {"Controller", "Client"};
+  private long slowWriteMillis = 100;
+  private Level discardLevel = Level.INFO;
+  private int discardLevelIndex = INFO;
+  private FileSize maxFileSize = FileSize.valueOf("100MB");
+  private int maxHistory = 7;
+  private boolean includeCallerData;
+  private long maxFlushTimeMillis = 1000;
+  private boolean compressed;
+  private FileSize blockSize = FileSize.valueOf("128KB");
+
+  private MpscBoundedQueue<ILoggingEvent> queue;
+  private final Queue<ILoggingEvent> errorOverflow = new ConcurrentLinkedQueue<>();
+  private final LongAdder[] dropped = new LongAdder[LEVELS.length];
+  private final long[] droppedReported = new long[LEVELS.length];
+  private final Map<String, LongAdder> droppedByLogger = new ConcurrentHashMap<>();
+  private final Map<String, Long> droppedByLoggerReported = new HashMap<>();
+  // shedding stage imposed by write latency; set by the writer thread
+  private volatile int latencyStage;
+  private volatile boolean running;
+  private Thread writer;
+
+  // owned by the writer thread
+  private LogFileChannel channel;
+  private BlockFileChannel blockChannel;
+  private ByteBuffer buffer;
+  private Layout<ILoggingEvent> layout;
+  private CharsetEncoder charsetEncoder;
+  private int pendingEvents;
+  private long lastFlushNanos;
+  private long writeLatencyNanos;
+
+  /**
+   * Instantiated by logback configurator
+   */
+  public BatchingFileAppender() {
+    super();
+    for (int i = 0; i < dropped.length; i++) {
+      dropped[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void start() {
+    if (isStarted()) {
+      return;
+    }
+    if (file == null || file.trim().isEmpty()) {
+      addError("No file set for the appender named [" + name + "].");
+      return;
+    }
+    if (encoder == null) {
+      addError("No encoder set for the appender named [" + name + "].");
+      return;
+    }
+    queue = new MpscBoundedQueue<>(queueSize);
+    if (discardingThreshold == UNDEFINED) {
+      discardingThreshold = queue.capacity() / 5;
+    }
+    if (shedDebugThreshold == UNDEFINED) {
+      shedDebugThreshold = queue.capacity() / 2;
+    }
+    if (shedLoggersThreshold == UNDEFINED) {
+      shedLoggersThreshold = queue.capacity() * 7 / 20;
+    }
+    initEncoding();
+    if (compressed) {
+      channel = blockChannel =
+          new BlockFileChannel(file.trim(), maxFileSize.getSize(), maxHistory);
+    } else {
+      channel = new RollingFileChannel(file.trim(), maxFileSize.getSize(), maxHistory);
+    }
+    try {
+      writeHeader(channel.open());
+    } catch (IOException e) {
+      addError("Could not open file [" + file + "] for the appender named [" + name + "].", e);
+      return;
+    }
+    running = true;
+    writer = new Thread(this::writeLoop, "yaolog-writer-" + name);
+    writer.setDaemon(true);
+    writer.start();
+    super.start();
+    addInfo("Started with queue size " + queue.capacity() + ", shedding thresholds "
+        + shedDebugThreshold + "/" + shedLoggersThreshold + "/" + discardingThreshold
+        + ", batch size " + batchSize + ", flush interval " + flushIntervalMillis + " msec.");
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    super.stop();
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(maxFlushTimeMillis);
+      if (writer.isAlive()) {
+        addWarn("Max flush timeout (" + maxFlushTimeMillis + " ms) exceeded. " + queue.size()
+            + " queued events were possibly discarded.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      addError("Interrupted while waiting for the writer thread to finish.", e);
+    }
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    if (!isStarted()) {
+      return;
+    }
+    final int level = levelIndex(event.getLevel());
+    final boolean error = level == ERROR;
+    if (!error && isShed(level, event.getLoggerName())) {
+      drop(level, event.getLoggerName());
+      return;
+    }
+    // event is rendered by another thread
+    event.prepareForDeferredProcessing();
+    if (includeCallerData) {
+      event.getCallerData();
+    }
+    final ILoggingEvent queued = CONTEXT_CAPTURE.apply(event);
+    if (!queue.offer(queued)) {
+      if (error) {
+        errorOverflow.offer(queued);
+      } else {
+        drop(level, event.getLoggerName());
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static UnaryOperator<ILoggingEvent> contextCapture() {
+    try {
+      return (UnaryOperator<ILoggingEvent>) Class
+          .forName(LOG_CONTEXT_CAPTURE, true, BatchingFileAppender.class.getClassLoader())
+          .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return UnaryOperator.identity();
+    }
+  }
+
+  private boolean isShed(int level, String loggerName) {
+    final int stage = shedStage();
+    return stage > 0 && (level <= DEBUG
+        || (stage >= SHED_DISCARD_LEVEL && level <= discardLevelIndex)
+        || (stage >= SHED_LOGGERS && level == INFO && isShedLogger(loggerName)));
+  }
+
+  private int shedStage() {
+    final int free = queue.capacity() - queue.size();
+    return Math.max(latencyStage, free < discardingThreshold ? SHED_DISCARD_LEVEL
+        : free < shedLoggersThreshold ? SHED_LOGGERS
+        : free < shedDebugThreshold ? SHED_DEBUG : 0);
+  }
+
+  private boolean isShedLogger(String loggerName) {
+    for (String suffix : shedLoggerSuffixes) {
+      if (loggerName.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void drop(int level, String loggerName) {
+    dropped[level].increment();
+    LongAdder byLogger = droppedByLogger.get(loggerName);
+    if (byLogger == null) {
+      byLogger = droppedByLogger.computeIfAbsent(loggerName, k -> new LongAdder());
+    }
+    byLogger.increment();
+  }
+
+  private void writeLoop() {
+    lastFlushNanos = System.nanoTime();
+    while (running) {
+      try {
+        if (drain() == 0) {
+          if (pendingEvents > 0 && flushDue()) {
+            flush();
+          } else if (latencyStage > 0 && flushDue()) {
+            // nothing is written to measure while events are shed
+            updateLatencyStage(0);
+            lastFlushNanos = System.nanoTime();
+          }
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+      } catch (RuntimeException e) {
+        addError("Unexpected failure of the writer thread.", e);
+      }
+    }
+    try {
+      while (drain() > 0) {
+        // drain whatever is left after stop
+      }
+      flush();
+      writeFooter();
+    } catch (RuntimeException e) {
+      addError("Could not flush remaining events.", e);
+    } finally {
+      closeChannel();
+    }
+  }
+
+  private int drain() {
+    int drained = 0;
+    ILoggingEvent event;
+    while (drained < batchSize && (event = nextEvent()) != null) {
+      encode(event);
+      drained++;
+      ++pendingEvents;
+      if (isBatchComplete() || flushDue()) {
+        flush();
+      }
+    }
+    return drained;
+  }
+
+  private boolean isBatchComplete() {
+    return blockChannel == null ? pendingEvents >= batchSize
+        : buffer.position() >= blockSize.getSize();
+  }
+
+  private ILoggingEvent nextEvent() {
+    ILoggingEvent event = errorOverflow.poll();
+    return event != null ? event : queue.poll();
+  }
+
+  private boolean flushDue() {
+    return System.nanoTime() - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+  }
+
+  private void initEncoding() {
+    // compressed block is collected in the buffer
+    buffer = ByteBuffer.allocateDirect(compressed
+        ? (int) Math.max(bufferSize, Math.min(Integer.MAX_VALUE / 2, 2 * blockSize.getSize()))
+        : bufferSize);
+    if (encoder instanceof LayoutWrappingEncoder) {
+      LayoutWrappingEncoder<ILoggingEvent> lwe = (LayoutWrappingEncoder<ILoggingEvent>) encoder;
+      layout = lwe.getLayout();
+      charsetEncoder =
+          (lwe.getCharset() == null ? StandardCharsets.UTF_8 : lwe.getCharset()).newEncoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+  }
+
+  private void encode(ILoggingEvent event) {
+    try {
+      if (layout != null) {
+        String text = layout.doLayout(event);
+        if (blockChannel != null) {
+          if (text.length() * charsetEncoder.maxBytesPerChar() > buffer.remaining()) {
+            // keep the event within one block
+            flush();
+          }
+          blockChannel.add(event.getTimeStamp(), levelIndex(event.getLevel()),
+              event.getLoggerName());
+        }
+        encodeChars(CharBuffer.wrap(text));
+      } else {
+        byte[] bytes = encoder.encode(event);
+        if (blockChannel != null) {
+          if (bytes.length > buffer.remaining()) {
+            flush();
+          }
+          blockChannel.add(event.getTimeStamp(), levelIndex(event.getLevel()),
+              event.getLoggerName());
+        }
+        put(bytes);
+      }
+    } catch (RuntimeException e) {
+      addError("Could not encode event of logger [" + event.getLoggerName() + "].", e);
+    }
+  }
+
+  private void encodeChars(CharBuffer chars) {
+    charsetEncoder.reset();
+    while (charsetEncoder.encode(chars, buffer, true).isOverflow()) {
+      flush();
+    }
+    while (charsetEncoder.flush(buffer).isOverflow()) {
+      flush();
+    }
+  }
+
+  private void put(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return;
+    }
+    if (bytes.length > buffer.remaining()) {
+      flush();
+    }
+    if (bytes.length > buffer.remaining()) {
+      // larger than the whole buffer
+      writeToChannel(ByteBuffer.wrap(bytes));
+    } else {
+      buffer.put(bytes);
+    }
+  }
+
+  private void flush() {
+    reportDropped();
+    buffer.flip();
+    writeToChannel(buffer);
+    buffer.clear();
+    pendingEvents = 0;
+    lastFlushNanos = System.nanoTime();
+  }
+
+  private void writeToChannel(ByteBuffer bytes) {
+    if (!bytes.hasRemaining()) {
+      return;
+    }
+    try {
+      if (!channel.isOpen()) {
+        writeHeader(channel.open());
+      }
+      if (channel.shouldRoll(bytes.remaining())) {
+        writeFooter();
+        channel.roll();
+        writeHeader(true);
+      }
+      long started = System.nanoTime();
+      channel.write(bytes);
+      updateLatencyStage(System.nanoTime() - started);
+    } catch (IOException e) {
+      addError("Could not write " + bytes.remaining() + " bytes to [" + file + "].", e);
+      closeChannel();
+    } finally {
+      bytes.position(bytes.limit());
+    }
+  }
+
+  void updateLatencyStage(long latencyNanos) {
+    writeLatencyNanos += (latencyNanos - writeLatencyNanos) / LATENCY_SMOOTHING;
+    long slowNanos = TimeUnit.MILLISECONDS.toNanos(slowWriteMillis);
+    int stage = slowNanos <= 0 ? 0
+        : writeLatencyNanos >= 2 * slowNanos ? SHED_LOGGERS
+        : writeLatencyNanos >= slowNanos ? SHED_DEBUG : 0;
+    if (stage != latencyStage) {
+      latencyStage = stage;
+    }
+  }
+
+  int getLatencyStage() {
+    return latencyStage;
+  }
+
+  private void writeHeader(boolean newFile) throws IOException {
+    byte[] header = encoder.headerBytes();
+    if (newFile && header != null && header.length > 0) {
+      channel.write(ByteBuffer.wrap(header));
+    }
+  }
+
+  private void writeFooter() {
+    byte[] footer = encoder.footerBytes();
+    if (footer != null && footer.length > 0 && channel.isOpen()) {
+      try {
+        channel.write(ByteBuffer.wrap(footer));
+      } catch (IOException e) {
+        addError("Could not write footer to [" + file + "].", e);
+      }
+    }
+  }
+
+  private void reportDropped() {
+    StringBuilder sb = null;
+    for (int i = 0; i < LEVELS.length; i++) {
+      long total = dropped[i].sum();
+      if (total != droppedReported[i]) {
+        sb = (sb == null ? new StringBuilder("yaolog ").append(name).append(" dropped events-")
+            : sb.append(',')).append(' ').append(LEVELS[i]).append('=')
+                .append(total - droppedReported[i]);
+        droppedReported[i] = total;
+      }
+    }
+    if (sb != null) {
+      String separator = "; by logger-";
+      for (Map.Entry<String, LongAdder> entry : droppedByLogger.entrySet()) {
+        long total = entry.getValue().sum();
+        Long reported = droppedByLoggerReported.put(entry.getKey(), total);
+        if (reported == null || reported != total) {
+          sb.append(separator).append(' ').append(entry.getKey()).append('=')
+              .append(total - (reported == null ? 0 : reported));
+          separator = ",";
+        }
+      }
+      addWarn(sb.toString());
+      put(sb.append(System.lineSeparator()).toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private void closeChannel() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      addError("Could not close [" + file + "].", e);
+    }
+  }
+
+  private static int levelIndex(Level level) {
+    switch (level.toInt()) {
+      case Level.ERROR_INT:
+        return 4;
+      case Level.WARN_INT:
+        return 3;
+      case Level.INFO_INT:
+        return 2;
+      case Level.DEBUG_INT:
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Number of events dropped since start for the level
+   * @param level logging level name, e.g. DEBUG
+   * @return dropped events count
+   */
+  public long getDroppedCount(String level) {
+    return dropped[levelIndex(Level.toLevel(level, Level.TRACE))].sum();
+  }
+
+  /**
+   * Number of events dropped since start per logger
+   * @return snapshot of dropped events count by logger name
+   */
+  public Map<String, Long> getDroppedCountByLogger() {
+    Map<String, Long> counts = new TreeMap<>();
+    droppedByLogger.forEach((logger, count) -> counts.put(logger, count.sum()));
+    return counts;
+  }
+
+  /**
+   * Current shedding stage: 0 - none, 1 - DEBUG, 2 - INFO of shed loggers, 3 - up to
+   * discardLevel
+   * @return shedding stage
+   */
+  public int getShedStage() {
+    return queue == null ? 0 : shedStage();
+  }
+
+  /**
+   * Current queue depth
+   * @return number of events waiting for the writer thread
+   */
+  public int getQueueDepth() {
+    return queue == null ? 0 : queue.size() + errorOverflow.size();
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  public Encoder<ILoggingEvent> getEncoder() {
+    return encoder;
+  }
+
+  public void setEncoder(Encoder<ILoggingEvent> encoder) {
+    this.encoder = encoder;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  /**
+   * Queue capacity; rounded up to the power of two
+   * @param queueSize capacity
+   */
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Number of events that triggers write to the file
+   * @param batchSize events per write
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  public long getFlushIntervalMillis() {
+    return flushIntervalMillis;
+  }
+
+  /**
+   * Max time an encoded event waits in the buffer before it is written to the file
+   * @param flushIntervalMillis flush interval in milliseconds
+   */
+  public void setFlushIntervalMillis(long flushIntervalMillis) {
+    this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Size of the direct buffer used for encoding
+   * @param bufferSize buffer size in bytes
+   */
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = Math.max(1024, bufferSize);
+  }
+
+  public int getDiscardingThreshold() {
+    return discardingThreshold;
+  }
+
+  /**
+   * Free queue capacity below which events at or below discardLevel are dropped.
+   * Defaults to 20% of the queue size; 0 disables early discarding
+   * @param discardingThreshold number of free queue slots
+   */
+  public void setDiscardingThreshold(int discardingThreshold) {
+    this.discardingThreshold = discardingThreshold;
+  }
+
+  public int getShedDebugThreshold() {
+    return shedDebugThreshold;
+  }
+
+  /**
+   * Free queue capacity below which DEBUG and TRACE events are dropped.
+   * Defaults to 50% of the queue size
+   * @param shedDebugThreshold number of free queue slots
+   */
+  public void setShedDebugThreshold(int shedDebugThreshold) {
+    this.shedDebugThreshold = shedDebugThreshold;
+  }
+
+  public int getShedLoggersThreshold() {
+    return shedLoggersThreshold;
+  }
+
+  /**
+   * Free queue capacity below which INFO events of shed loggers are dropped.
+   * Defaults to 35% of the queue size
+   * @param shedLoggersThreshold number of free queue slots
+   */
+  public void setShedLoggersThreshold(int shedLoggersThreshold) {
+    this.shedLoggersThreshold = shedLoggersThreshold;
+  }
+
+  public String getShedLoggerSuffixes() {
+    return String.join(",", shedLoggerSuffixes);
+  }
+
+  /**
+   * Logger name suffixes of INFO events shed ahead of other INFO events
+   * @param shedLoggerSuffixes comma separated suffixes, Controller,Client by default
+   */
+  public void setShedLoggerSuffixes(String shedLoggerSuffixes) {
+    this.shedLoggerSuffixes = Arrays.stream(shedLoggerSuffixes.split(",")).map(String::trim)
+        .filter(suffix -> !suffix.isEmpty()).toArray(String[]::new);
+  }
+
+  public long getSlowWriteMillis() {
+    return slowWriteMillis;
+  }
+
+  /**
+   * Average file write latency above which DEBUG events are dropped; above twice of it INFO
+   * events of shed loggers are dropped too. 0 disables latency driven shedding
+   * @param slowWriteMillis latency in milliseconds
+   */
+  public void setSlowWriteMillis(long slowWriteMillis) {
+    this.slowWriteMillis = Math.max(0, slowWriteMillis);
+  }
+
+  public String getDiscardLevel() {
+    return discardLevel.toString();
+  }
+
+  /**
+   * Most severe level dropped when the queue is close to full
+   * @param discardLevel level name, INFO by default
+   */
+  public void setDiscardLevel(String discardLevel) {
+    this.discardLevel = Level.toLevel(discardLevel, Level.INFO);
+    this.discardLevelIndex = levelIndex(this.discardLevel);
+  }
+
+  public FileSize getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  /**
+   * Size of the active file that triggers rolling. Zero disables rolling
+   * @param maxFileSize size, e.g. 100MB
+   */
+  public void setMaxFileSize(FileSize maxFileSize) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  public int getMaxHistory() {
+    return maxHistory;
+  }
+
+  /**
+   * Number of rolled files to keep
+   * @param maxHistory archived files count
+   */
+  public void setMaxHistory(int maxHistory) {
+    this.maxHistory = Math.max(0, maxHistory);
+  }
+
+  public boolean isIncludeCallerData() {
+    return includeCallerData;
+  }
+
+  public void setIncludeCallerData(boolean includeCallerData) {
+    this.includeCallerData = includeCallerData;
+  }
+
+  public long getMaxFlushTimeMillis() {
+    return maxFlushTimeMillis;
+  }
+
+  /**
+   * Max time to wait for the writer thread on stop
+   * @param maxFlushTimeMillis timeout in milliseconds
+   */
+  public void setMaxFlushTimeMillis(long maxFlushTimeMillis) {
+    this.maxFlushTimeMillis = maxFlushTimeMillis;
+  }
+
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Writes Deflate compressed blocks with time index instead of plain text; read the file with
+   * {@link BlockLogReader}
+   * @param compressed true for block compressed format
+   */
+  public void setCompressed(boolean compressed) {
+    this.compressed = compressed;
+  }
+
+  public FileSize getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Uncompressed size of the compressed block; a block is also completed on flush interval
+   * @param blockSize size, e.g. 128KB
+   */
+  public void setBlockSize(FileSize blockSize) {
+    this.blockSize = blockSize;
+  }
+}
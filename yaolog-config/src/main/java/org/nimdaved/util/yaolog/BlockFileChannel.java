@@ -0,0 +1,163 @@
+package org.nimdaved.util.yaolog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * Block compressed log file with time index. Every write becomes one Deflate compressed block
+ * of the data file:
+ * <pre>
+ * int magic 'YLZB', int compressed length, int raw length, compressed bytes
+ * </pre>
+ * and one fixed size record of the sidecar index file (data file name + ".idx"), after the
+ * 12 bytes header 'YLZI', version, bloom filter bits:
+ * <pre>
+ * long block offset, int compressed length, int raw length, long min timestamp,
+ * long max timestamp, int events, int level mask, long[8] logger bloom filter
+ * </pre>
+ * Events of a block are registered with {@link #add(long, int, String)} before the write.
+ * Files are rolled together, after the block which reaches maxFileSize.
+ * Read with {@link BlockLogReader}. Not thread safe; owned by the appender's writer thread
+ */
+final class BlockFileChannel implements LogFileChannel {
+
+  static final String INDEX_SUFFIX = ".idx";
+  static final int BLOCK_MAGIC = 0x594C5A42;
+  static final int INDEX_MAGIC = 0x594C5A49;
+  static final int INDEX_VERSION = 1;
+  static final int BLOCK_HEADER_SIZE = 12;
+  static final int INDEX_HEADER_SIZE = 12;
+  static final int BLOOM_LONGS = 8;
+  static final int BLOOM_BITS = BLOOM_LONGS * Long.SIZE;
+  static final int BLOOM_HASHES = 3;
+  static final int INDEX_RECORD_SIZE = 8 + 4 + 4 + 8 + 8 + 4 + 4 + BLOOM_LONGS * 8;
+
+  private final RollingFileChannel data;
+  private final RollingFileChannel index;
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private final ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+  private ByteBuffer compressed = ByteBuffer.allocate(64 * 1024);
+
+  // metadata of the block being collected
+  private long minTimestamp = Long.MAX_VALUE;
+  private long maxTimestamp = Long.MIN_VALUE;
+  private int events;
+  private int levels;
+  private final long[] bloom = new long[BLOOM_LONGS];
+
+  BlockFileChannel(String fileName, long maxFileSize, int maxHistory) {
+    this.data = new RollingFileChannel(fileName, maxFileSize, maxHistory);
+    this.index = new RollingFileChannel(fileName, INDEX_SUFFIX, 0, maxHistory);
+  }
+
+  /**
+   * Registers event of the next block
+   * @param timestamp event time, epoch millis
+   * @param level level index, 0 (TRACE) to 4 (ERROR)
+   * @param logger logger name
+   */
+  void add(long timestamp, int level, String logger) {
+    minTimestamp = Math.min(minTimestamp, timestamp);
+    maxTimestamp = Math.max(maxTimestamp, timestamp);
+    events++;
+    levels |= 1 << level;
+    int hash = logger.hashCode();
+    int step = bloomStep(hash);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = Math.floorMod(hash + i * step, BLOOM_BITS);
+      bloom[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  static int bloomStep(int hash) {
+    return (hash >>> 16 | hash << 16) * 0x9E3779B9 | 1;
+  }
+
+  @Override
+  public boolean open() throws IOException {
+    boolean newFile = data.open();
+    if (index.open()) {
+      writeIndexHeader();
+    }
+    return newFile;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return data.isOpen() && index.isOpen();
+  }
+
+  @Override
+  public boolean shouldRoll(long pending) {
+    // compressed size of pending bytes is not known yet
+    return data.shouldRoll(0);
+  }
+
+  @Override
+  public void roll() throws IOException {
+    data.roll();
+    index.roll();
+    writeIndexHeader();
+  }
+
+  @Override
+  public void write(ByteBuffer buffer) throws IOException {
+    final int rawLength = buffer.remaining();
+    if (rawLength == 0) {
+      return;
+    }
+    compressed.clear().position(BLOCK_HEADER_SIZE);
+    deflater.setInput(buffer);
+    deflater.finish();
+    while (!deflater.finished()) {
+      if (!compressed.hasRemaining()) {
+        compressed = ByteBuffer.allocate(compressed.capacity() * 2)
+            .put(compressed.flip());
+      }
+      deflater.deflate(compressed);
+    }
+    deflater.reset();
+    compressed.flip();
+    final int compressedLength = compressed.limit() - BLOCK_HEADER_SIZE;
+    compressed.putInt(0, BLOCK_MAGIC).putInt(4, compressedLength).putInt(8, rawLength);
+
+    final long offset = data.size();
+    data.write(compressed);
+    writeIndexRecord(offset, compressedLength, rawLength);
+  }
+
+  private void writeIndexRecord(long offset, int compressedLength, int rawLength)
+      throws IOException {
+    if (events == 0) {
+      // header, footer or report lines only
+      minTimestamp = maxTimestamp = System.currentTimeMillis();
+    }
+    record.clear();
+    record.putLong(offset).putInt(compressedLength).putInt(rawLength).putLong(minTimestamp)
+        .putLong(maxTimestamp).putInt(events).putInt(levels);
+    for (int i = 0; i < BLOOM_LONGS; i++) {
+      record.putLong(bloom[i]);
+      bloom[i] = 0;
+    }
+    index.write(record.flip());
+    minTimestamp = Long.MAX_VALUE;
+    maxTimestamp = Long.MIN_VALUE;
+    events = 0;
+    levels = 0;
+  }
+
+  private void writeIndexHeader() throws IOException {
+    index.write(ByteBuffer.allocate(INDEX_HEADER_SIZE).putInt(INDEX_MAGIC).putInt(INDEX_VERSION)
+        .putInt(BLOOM_BITS).flip());
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      data.close();
+    } finally {
+      index.close();
+    }
+  }
+}
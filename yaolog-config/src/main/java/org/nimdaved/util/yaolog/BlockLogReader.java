@@ -0,0 +1,389 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.Level;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of block compressed log files written by {@link BatchingFileAppender} with
+ * compressed=true. Uses the sidecar index to select blocks by time range, level and logger, and
+ * decompresses only the selected blocks. Blocks written after the last index record (e.g. on
+ * crash) are found by scanning block headers and always selected. Bytes of a character split
+ * over adjacent blocks are decoded together. Usage:
+ * <pre>
+ * try (BlockLogReader reader = new BlockLogReader(Paths.get("logs/app.log"))) {
+ *   reader.read(from, to, "com.acme.FooService", "ERROR", System.out::println);
+ * }
+ * </pre>
+ * or from command line:
+ * <pre>
+ * java -cp yaolog-config.jar:logback-classic.jar:logback-core.jar \
+ *   org.nimdaved.util.yaolog.BlockLogReader logs/app.log --from=2024-01-15T10:00:00Z \
+ *   --to=2024-01-15T10:05:00Z --level=ERROR --logger=com.acme.FooService --grep=orderId
+ * </pre>
+ */
+public final class BlockLogReader implements AutoCloseable {
+
+  private final FileChannel data;
+  private final List<Block> blocks;
+  private final CharsetDecoder decoder;
+  private final Inflater inflater = new Inflater();
+
+  /**
+   * Indexed block of the data file
+   */
+  public static final class Block {
+    private final long offset;
+    private final int compressedLength;
+    private final int rawLength;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int events;
+    private final int levels;
+    private final long[] bloom;
+
+    Block(long offset, int compressedLength, int rawLength, long minTimestamp, long maxTimestamp,
+        int events, int levels, long[] bloom) {
+      this.offset = offset;
+      this.compressedLength = compressedLength;
+      this.rawLength = rawLength;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+      this.events = events;
+      this.levels = levels;
+      this.bloom = bloom;
+    }
+
+    /**
+     * Checks if the block could hold events of the time range, level and logger
+     * @param from range start, epoch millis
+     * @param to range end, epoch millis
+     * @param level level name or null for any level
+     * @param logger logger name or null for any logger
+     * @return false if the block certainly has no such events
+     */
+    public boolean mightContain(long from, long to, String level, String logger) {
+      if (bloom == null) {
+        // not indexed
+        return true;
+      }
+      return maxTimestamp >= from && minTimestamp <= to
+          && (level == null || (levels & 1 << levelIndex(level)) != 0)
+          && (logger == null || mightContainLogger(logger));
+    }
+
+    private boolean mightContainLogger(String logger) {
+      int hash = logger.hashCode();
+      int step = BlockFileChannel.bloomStep(hash);
+      for (int i = 0; i < BlockFileChannel.BLOOM_HASHES; i++) {
+        int bit = Math.floorMod(hash + i * step, BlockFileChannel.BLOOM_BITS);
+        if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public int getCompressedLength() {
+      return compressedLength;
+    }
+
+    public int getRawLength() {
+      return rawLength;
+    }
+
+    public long getMinTimestamp() {
+      return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+      return maxTimestamp;
+    }
+
+    public int getEvents() {
+      return events;
+    }
+  }
+
+  /**
+   * Opens UTF-8 encoded log file
+   * @param file data file; its index is expected in file + ".idx"
+   * @throws IOException when the file could not be read
+   */
+  public BlockLogReader(Path file) throws IOException {
+    this(file, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Opens log file
+   * @param file data file; its index is expected in file + ".idx"
+   * @param charset encoder charset
+   * @throws IOException when the file could not be read
+   */
+  public BlockLogReader(Path file, Charset charset) throws IOException {
+    this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.data = FileChannel.open(file, StandardOpenOption.READ);
+    this.blocks =
+        loadBlocks(file.resolveSibling(file.getFileName() + BlockFileChannel.INDEX_SUFFIX));
+  }
+
+  /**
+   * All blocks of the file
+   * @return blocks in file order
+   */
+  public List<Block> getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * Reads lines of blocks which might contain events of the time range, level and logger.
+   * Filters select blocks; lines of a selected block are not filtered
+   * @param from range start, epoch millis
+   * @param to range end, epoch millis
+   * @param level level name or null for any level
+   * @param logger logger name or null for any logger
+   * @param lines consumer of lines, without line separators
+   * @return number of decompressed blocks
+   * @throws IOException when the file could not be read or is corrupted
+   */
+  public int read(long from, long to, String level, String logger, Consumer<String> lines)
+      throws IOException {
+    int read = 0;
+    String partial = null;
+    ByteBuffer undecoded = null;
+    Block previous = null;
+    decoder.reset();
+    for (Block block : blocks) {
+      if (!block.mightContain(from, to, level, logger)) {
+        continue;
+      }
+      if (previous != null && previous.offset + BlockFileChannel.BLOCK_HEADER_SIZE
+          + previous.compressedLength != block.offset) {
+        // line or character split over blocks is joined only when both are read
+        String rest = remainder(partial, undecoded);
+        if (rest != null) {
+          lines.accept(rest);
+        }
+        partial = null;
+        undecoded = null;
+      }
+      ByteBuffer bytes = decompress(block, undecoded);
+      String text = decode(bytes, false);
+      undecoded = bytes.hasRemaining() ? bytes : null;
+      int start = 0;
+      for (int eol = text.indexOf('\n'); eol >= 0; eol = text.indexOf('\n', start)) {
+        String line = text.substring(start, eol > start && text.charAt(eol - 1) == '\r'
+            ? eol - 1 : eol);
+        lines.accept(partial == null ? line : partial + line);
+        partial = null;
+        start = eol + 1;
+      }
+      if (start == 0 && partial != null) {
+        // block without line end continues the line
+        partial = partial + text;
+      } else {
+        partial = start < text.length() ? text.substring(start) : null;
+      }
+      previous = block;
+      read++;
+    }
+    String rest = remainder(partial, undecoded);
+    if (rest != null) {
+      lines.accept(rest);
+    }
+    return read;
+  }
+
+  /**
+   * Decodes bytes; incomplete character at the end is left in the buffer unless it is the end
+   * of input
+   */
+  private String decode(ByteBuffer bytes, boolean endOfInput) {
+    CharBuffer chars =
+        CharBuffer.allocate((int) (bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+    decoder.decode(bytes, chars, endOfInput);
+    if (endOfInput) {
+      decoder.flush(chars);
+      decoder.reset();
+    }
+    return chars.flip().toString();
+  }
+
+  private String remainder(String partial, ByteBuffer undecoded) {
+    String tail = undecoded == null ? "" : decode(undecoded, true);
+    if (partial == null) {
+      return tail.isEmpty() ? null : tail;
+    }
+    return partial + tail;
+  }
+
+  /**
+   * Decompresses the block after undecoded bytes of the previous one
+   */
+  private ByteBuffer decompress(Block block, ByteBuffer undecoded) throws IOException {
+    ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+    long position = block.offset + BlockFileChannel.BLOCK_HEADER_SIZE;
+    while (compressed.hasRemaining()) {
+      if (data.read(compressed, position + compressed.position()) < 0) {
+        throw new IOException("Truncated block at " + block.offset);
+      }
+    }
+    int carried = undecoded == null ? 0 : undecoded.remaining();
+    byte[] raw = new byte[carried + block.rawLength];
+    if (undecoded != null) {
+      undecoded.get(raw, 0, carried);
+    }
+    inflater.reset();
+    inflater.setInput(compressed.array());
+    try {
+      int inflated = carried;
+      while (inflated < raw.length && !inflater.finished()) {
+        int n = inflater.inflate(raw, inflated, raw.length - inflated);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        inflated += n;
+      }
+      if (inflated != raw.length) {
+        throw new IOException("Corrupted block at " + block.offset);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted block at " + block.offset, e);
+    }
+    return ByteBuffer.wrap(raw);
+  }
+
+  private List<Block> loadBlocks(Path indexFile) throws IOException {
+    List<Block> loaded = new ArrayList<>();
+    long next = 0;
+    if (Files.exists(indexFile)) {
+      ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+      if (index.remaining() >= BlockFileChannel.INDEX_HEADER_SIZE
+          && index.getInt() == BlockFileChannel.INDEX_MAGIC
+          && index.getInt() == BlockFileChannel.INDEX_VERSION
+          && index.getInt() == BlockFileChannel.BLOOM_BITS) {
+        while (index.remaining() >= BlockFileChannel.INDEX_RECORD_SIZE) {
+          long offset = index.getLong();
+          int compressedLength = index.getInt();
+          int rawLength = index.getInt();
+          long minTimestamp = index.getLong();
+          long maxTimestamp = index.getLong();
+          int events = index.getInt();
+          int levels = index.getInt();
+          long[] bloom = new long[BlockFileChannel.BLOOM_LONGS];
+          for (int i = 0; i < bloom.length; i++) {
+            bloom[i] = index.getLong();
+          }
+          loaded.add(new Block(offset, compressedLength, rawLength, minTimestamp, maxTimestamp,
+              events, levels, bloom));
+          next = offset + BlockFileChannel.BLOCK_HEADER_SIZE + compressedLength;
+        }
+      }
+    }
+    // blocks written after the last index record
+    ByteBuffer header = ByteBuffer.allocate(BlockFileChannel.BLOCK_HEADER_SIZE);
+    long size = data.size();
+    while (next + BlockFileChannel.BLOCK_HEADER_SIZE <= size) {
+      header.clear();
+      while (header.hasRemaining() && data.read(header, next + header.position()) >= 0) {
+        // read whole header
+      }
+      header.flip();
+      if (header.getInt(0) != BlockFileChannel.BLOCK_MAGIC) {
+        break;
+      }
+      int compressedLength = header.getInt(4);
+      loaded.add(new Block(next, compressedLength, header.getInt(8), 0, 0, 0, 0, null));
+      next += BlockFileChannel.BLOCK_HEADER_SIZE + compressedLength;
+    }
+    return loaded;
+  }
+
+  private static int levelIndex(String level) {
+    switch (Level.toLevel(level, Level.TRACE).toInt()) {
+      case Level.ERROR_INT:
+        return 4;
+      case Level.WARN_INT:
+        return 3;
+      case Level.INFO_INT:
+        return 2;
+      case Level.DEBUG_INT:
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    data.close();
+  }
+
+  /**
+   * Prints lines of selected blocks: file [--from=ISO instant] [--to=ISO instant]
+   * [--level=ERROR] [--logger=name] [--grep=text]
+   * @param args command line arguments
+   * @throws IOException when the file could not be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: BlockLogReader file [--from=2024-01-15T10:00:00Z] "
+          + "[--to=2024-01-15T10:05:00Z] [--level=ERROR] [--logger=name] [--grep=text]");
+      System.exit(1);
+    }
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    String level = null;
+    String logger = null;
+    String grep = null;
+    for (int i = 1; i < args.length; i++) {
+      String arg = args[i];
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--from=")) {
+        from = Instant.parse(value).toEpochMilli();
+      } else if (arg.startsWith("--to=")) {
+        to = Instant.parse(value).toEpochMilli();
+      } else if (arg.startsWith("--level=")) {
+        level = value;
+      } else if (arg.startsWith("--logger=")) {
+        logger = value;
+      } else if (arg.startsWith("--grep=")) {
+        grep = value;
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    final String text = grep;
+    try (BlockLogReader reader = new BlockLogReader(Paths.get(args[0]))) {
+      int read = reader.read(from, to, level, logger, line -> {
+        if (text == null || line.contains(text)) {
+          System.out.println(line);
+        }
+      });
+      System.err.println("Decompressed " + read + " of " + reader.getBlocks().size() + " blocks");
+    }
+  }
+}
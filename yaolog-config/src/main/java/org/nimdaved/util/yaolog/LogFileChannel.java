@@ -0,0 +1,42 @@
+package org.nimdaved.util.yaolog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Log file written by {@link BatchingFileAppender}'s writer thread. Not thread safe
+ */
+interface LogFileChannel extends AutoCloseable {
+
+  /**
+   * Opens (or reopens) the active file in append mode
+   * @return true if the file is new or empty
+   * @throws IOException when file could not be opened
+   */
+  boolean open() throws IOException;
+
+  boolean isOpen();
+
+  /**
+   * Checks whether writing pending bytes would exceed max file size
+   * @param pending number of bytes to be written
+   * @return true if the file should be rolled before writing
+   */
+  boolean shouldRoll(long pending);
+
+  /**
+   * Shifts archived files and opens the new active file
+   * @throws IOException when files could not be renamed or opened
+   */
+  void roll() throws IOException;
+
+  /**
+   * Writes all remaining bytes of the buffer
+   * @param buffer flipped buffer
+   * @throws IOException on write failure
+   */
+  void write(ByteBuffer buffer) throws IOException;
+
+  @Override
+  void close() throws IOException;
+}
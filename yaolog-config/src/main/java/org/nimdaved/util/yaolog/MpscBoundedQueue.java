@@ -0,0 +1,77 @@
+package org.nimdaved.util.yaolog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and exactly one consumer.
+ * Producers never block: offer fails when the queue is full
+ * @param <E> element type
+ */
+final class MpscBoundedQueue<E> {
+
+  private final AtomicReferenceArray<E> buffer;
+  private final int mask;
+  private final AtomicLong producerIndex = new AtomicLong();
+  // written by the single consumer only
+  private volatile long consumerIndex;
+
+  /**
+   * Creates queue with capacity rounded up to the power of two
+   * @param capacity requested capacity
+   */
+  MpscBoundedQueue(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    buffer = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  /**
+   * Adds element if there is free capacity. Safe for any number of threads
+   * @param e element, not null
+   * @return true if added, false if the queue is full
+   */
+  boolean offer(E e) {
+    long index;
+    do {
+      index = producerIndex.get();
+      if (index - consumerIndex > mask) {
+        return false;
+      }
+    } while (!producerIndex.compareAndSet(index, index + 1));
+    buffer.lazySet((int) index & mask, e);
+    return true;
+  }
+
+  /**
+   * Removes head element. To be called by the consumer thread only
+   * @return head element or null if the queue is empty
+   */
+  E poll() {
+    long index = consumerIndex;
+    int offset = (int) index & mask;
+    // null also covers a producer that claimed the slot, but has not stored the element yet
+    E e = buffer.get(offset);
+    if (e != null) {
+      buffer.lazySet(offset, null);
+      consumerIndex = index + 1;
+    }
+    return e;
+  }
+
+  /**
+   * Approximate number of queued elements
+   * @return queue depth
+   */
+  int size() {
+    return (int) Math.max(0, producerIndex.get() - consumerIndex);
+  }
+
+  /**
+   * Queue capacity
+   * @return capacity
+   */
+  int capacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,108 @@
+package org.nimdaved.util.yaolog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Size based rolling file channel: file.log is renamed to file.log.1, file.log.1 to file.log.2 and
+ * so on up to maxHistory; with suffix file.log.idx is renamed to file.log.1.idx. Not thread safe;
+ * owned by the appender's writer thread
+ */
+final class RollingFileChannel implements LogFileChannel {
+
+  private final Path file;
+  private final String suffix;
+  private final long maxFileSize;
+  private final int maxHistory;
+  private FileChannel channel;
+  private long size;
+
+  RollingFileChannel(String fileName, long maxFileSize, int maxHistory) {
+    this(fileName, "", maxFileSize, maxHistory);
+  }
+
+  RollingFileChannel(String fileName, String suffix, long maxFileSize, int maxHistory) {
+    this.file = Paths.get(fileName + suffix).toAbsolutePath();
+    this.suffix = suffix;
+    this.maxFileSize = maxFileSize;
+    this.maxHistory = maxHistory;
+  }
+
+  @Override
+  public boolean open() throws IOException {
+    close();
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    size = channel.size();
+    return size == 0;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return channel != null && channel.isOpen();
+  }
+
+  @Override
+  public boolean shouldRoll(long pending) {
+    return maxFileSize > 0 && size > 0 && size + pending > maxFileSize;
+  }
+
+  @Override
+  public void roll() throws IOException {
+    close();
+    if (maxHistory > 0) {
+      Files.deleteIfExists(archive(maxHistory));
+      for (int i = maxHistory - 1; i > 0; i--) {
+        Path from = archive(i);
+        if (Files.exists(from)) {
+          Files.move(from, archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      Files.move(file, archive(1), StandardCopyOption.REPLACE_EXISTING);
+    } else {
+      Files.deleteIfExists(file);
+    }
+    open();
+  }
+
+  @Override
+  public void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      size += channel.write(buffer);
+    }
+  }
+
+  long size() {
+    return size;
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  private Path archive(int index) {
+    String name = file.getFileName().toString();
+    return file.resolveSibling(name.substring(0, name.length() - suffix.length()) + "." + index
+        + suffix);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      try {
+        channel.close();
+      } finally {
+        channel = null;
+      }
+    }
+  }
+}
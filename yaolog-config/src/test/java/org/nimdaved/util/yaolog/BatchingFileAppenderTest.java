@@ -0,0 +1,60 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchingFileAppenderTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void latencyStageClearsWhenIdle() throws IOException, InterruptedException {
+    LoggerContext context = new LoggerContext();
+    context.setMDCAdapter(new LogbackMDCAdapter());
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern("%level %msg%n");
+    encoder.start();
+    BatchingFileAppender appender = new BatchingFileAppender();
+    appender.setContext(context);
+    appender.setName("test");
+    appender.setFile(dir.resolve("app.log").toString());
+    appender.setEncoder(encoder);
+    appender.setFlushIntervalMillis(10);
+    appender.setSlowWriteMillis(100);
+    // one write 8 times slower than slowWriteMillis raises the average above it
+    appender.updateLatencyStage(TimeUnit.MILLISECONDS.toNanos(3 * 8 * 100));
+    assertEquals(2, appender.getLatencyStage());
+    appender.start();
+    Logger logger = context.getLogger("com.x.Service");
+
+    appender.doAppend(new LoggingEvent(null, logger, Level.DEBUG, "shed", null, null));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (appender.getLatencyStage() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, appender.getLatencyStage());
+    appender.doAppend(new LoggingEvent(null, logger, Level.DEBUG, "written", null, null));
+    appender.stop();
+
+    String log = new String(Files.readAllBytes(dir.resolve("app.log")), StandardCharsets.UTF_8);
+    assertFalse(log.contains("DEBUG shed"), log);
+    assertTrue(log.contains("DEBUG written"), log);
+  }
+}
@@ -0,0 +1,87 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.util.FileSize;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlockLogReaderTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void characterSplitOverBlocksIsDecoded() throws IOException {
+    Path file = dir.resolve("split.log");
+    byte[] bytes = "price \u20ac10\nnext \u00e9t\u00e9\n".getBytes(StandardCharsets.UTF_8);
+    // inside the 3 bytes of the euro sign
+    int split = "price ".length() + 1;
+    BlockFileChannel channel = new BlockFileChannel(file.toString(), 1024 * 1024, 1);
+    channel.open();
+    channel.write(ByteBuffer.wrap(bytes, 0, split));
+    channel.write(ByteBuffer.wrap(bytes, split, bytes.length - split));
+    channel.close();
+
+    assertEquals(Arrays.asList("price \u20ac10", "next \u00e9t\u00e9"), readAll(file));
+  }
+
+  @Test
+  void multiByteEventsLargerThanBlockRoundTrip() throws IOException {
+    LoggerContext context = new LoggerContext();
+    context.setMDCAdapter(new LogbackMDCAdapter());
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern("%level %msg%n");
+    encoder.start();
+    BatchingFileAppender appender = new BatchingFileAppender();
+    appender.setContext(context);
+    appender.setName("test");
+    appender.setFile(dir.resolve("app.log").toString());
+    appender.setEncoder(encoder);
+    appender.setCompressed(true);
+    appender.setBufferSize(1024);
+    appender.setBlockSize(FileSize.valueOf("1KB"));
+    appender.start();
+    Logger logger = context.getLogger("com.x.Service");
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      // 3 bytes per euro sign; most events span several 2KB blocks
+      String message = i + " " + String.join("", Collections.nCopies(100 * i + 1, "\u20ac\u00e9x"));
+      appender.doAppend(new LoggingEvent(null, logger, Level.INFO, message, null, null));
+      expected.add("INFO " + message);
+    }
+    appender.stop();
+
+    Path file = dir.resolve("app.log");
+    try (BlockLogReader reader = new BlockLogReader(file)) {
+      int blocks = reader.getBlocks().size();
+      assertTrue(blocks > expected.size(), "blocks " + blocks);
+    }
+    assertEquals(expected, readAll(file));
+  }
+
+  private static List<String> readAll(Path file) throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (BlockLogReader reader = new BlockLogReader(file)) {
+      reader.read(Long.MIN_VALUE, Long.MAX_VALUE, null, null, lines::add);
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,29 @@
+package com.nimdaved.yaolog.perf.app;
+
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stands for remote inventory service; logged at INFO by name convention. Optional latency
+ * (yaolog.perf.client.latency.us) parks the caller inside the advised call, as remote calls do
+ */
+@Component
+public class InventoryClient {
+
+  private static final String[] WAREHOUSES = {"east", "west", "north"};
+
+  private @Value("${yaolog.perf.client.latency.us:0}") long latencyMicros;
+
+  public Reservation reserve(String sku, int quantity) {
+    if (latencyMicros > 0) {
+      try {
+        TimeUnit.MICROSECONDS.sleep(latencyMicros);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return new Reservation(sku, quantity,
+        WAREHOUSES[(sku.hashCode() & 0x7fffffff) % WAREHOUSES.length]);
+  }
+}
@@ -0,0 +1,10 @@
+package com.nimdaved.yaolog.perf.app;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Placed order
+ */
+public record OrderConfirmation(String orderId, BigDecimal total, List<Reservation> reservations) {
+}
@@ -0,0 +1,20 @@
+package com.nimdaved.yaolog.perf.app;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Entry point of the synthetic application; logged at INFO by name convention
+ */
+@Component
+public class OrderController {
+
+  private final OrderService orderService;
+
+  public OrderController(OrderService orderService) {
+    this.orderService = orderService;
+  }
+
+  public OrderConfirmation placeOrder(OrderRequest request) {
+    return orderService.place(request);
+  }
+}
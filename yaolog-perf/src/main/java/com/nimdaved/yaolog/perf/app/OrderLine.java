@@ -0,0 +1,9 @@
+package com.nimdaved.yaolog.perf.app;
+
+import java.math.BigDecimal;
+
+/**
+ * Order line
+ */
+public record OrderLine(String sku, int quantity, BigDecimal price) {
+}
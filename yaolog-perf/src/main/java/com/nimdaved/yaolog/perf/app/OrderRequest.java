@@ -0,0 +1,9 @@
+package com.nimdaved.yaolog.perf.app;
+
+import java.util.List;
+
+/**
+ * Incoming order
+ */
+public record OrderRequest(String customerId, String cardNumber, List<OrderLine> lines) {
+}
@@ -0,0 +1,33 @@
+package com.nimdaved.yaolog.perf.app;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Places orders: prices lines and reserves inventory
+ */
+@Service
+public class OrderService {
+
+  private final PricingService pricingService;
+  private final InventoryClient inventoryClient;
+
+  public OrderService(PricingService pricingService, InventoryClient inventoryClient) {
+    this.pricingService = pricingService;
+    this.inventoryClient = inventoryClient;
+  }
+
+  public OrderConfirmation place(OrderRequest request) {
+    BigDecimal total = BigDecimal.ZERO;
+    List<Reservation> reservations = new ArrayList<>(request.lines().size());
+    for (OrderLine line : request.lines()) {
+      total = total.add(pricingService.price(line));
+      reservations.add(inventoryClient.reserve(line.sku(), line.quantity()));
+    }
+    return new OrderConfirmation(request.customerId() + '-' + request.lines().size(), total,
+        reservations);
+  }
+}
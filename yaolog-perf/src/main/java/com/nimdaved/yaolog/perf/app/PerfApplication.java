@@ -0,0 +1,11 @@
+package com.nimdaved.yaolog.perf.app;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Synthetic application driven by AspectLoadTest. Lives under Shadow.ROOT_PACKAGE ("com"), so
+ * its beans are advised by LogUtil when the aspect is registered
+ */
+@SpringBootApplication
+public class PerfApplication {
+}
@@ -0,0 +1,20 @@
+package com.nimdaved.yaolog.perf.app;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Line pricing
+ */
+@Service
+public class PricingService {
+
+  private static final BigDecimal TAX = new BigDecimal("1.0825");
+
+  public BigDecimal price(OrderLine line) {
+    return line.price().multiply(BigDecimal.valueOf(line.quantity())).multiply(TAX)
+        .setScale(2, RoundingMode.HALF_UP);
+  }
+}
@@ -0,0 +1,7 @@
+package com.nimdaved.yaolog.perf.app;
+
+/**
+ * Inventory reservation of a single sku
+ */
+public record Reservation(String sku, int reserved, String warehouse) {
+}
@@ -0,0 +1,279 @@
+package org.nimdaved.util.yaolog.perf;
+
+import com.nimdaved.yaolog.perf.app.OrderController;
+import com.nimdaved.yaolog.perf.app.OrderLine;
+import com.nimdaved.yaolog.perf.app.OrderRequest;
+import com.nimdaved.yaolog.perf.app.PerfApplication;
+import org.nimdaved.util.yaolog.LogUtil;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Macro load test of AOP logging overhead. Starts the synthetic Spring Boot application
+ * (com.nimdaved.yaolog.perf.app, controller, services and client beans) with and without
+ * LogUtil aspect at each log level and drives it with 1, 2, 4 .. N threads. Shows contention on
+ * shared pieces (loggers map, appender locks, appLogLevel) that microbenchmarks miss. Reports
+ * throughput, latency percentiles, bytes allocated per operation (ThreadMXBean) and GC activity.
+ * <p>Arguments, all optional:
+ * <pre>
+ * --threads=N     max number of threads, default 2 x available processors
+ * --duration=S    measured seconds per step, default 10
+ * --warmup=S      warm up seconds per step, default 3
+ * --levels=L,..   application log levels, default ERROR,INFO,DEBUG
+ * --lines=N       order lines per request, default 3
+ * --report=FILE   CSV report, default build/perf/aspect-load.csv
+ * </pre>
+ * Log appender is selected with -Dyaolog.perf.appender=FILE|YAOLOG_FILE, see logback.xml
+ */
+public final class AspectLoadTest {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  static final int REQUESTS = 256;
+
+  private static final class Worker extends Thread {
+    private final OrderController controller;
+    private final OrderRequest[] requests;
+    private final CountDownLatch start;
+    private final Step step;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long operations;
+    private long allocatedBytes;
+
+    Worker(int id, OrderController controller, OrderRequest[] requests, CountDownLatch start,
+        Step step) {
+      super("load-" + id);
+      this.controller = controller;
+      this.requests = requests;
+      this.start = start;
+      this.step = step;
+    }
+
+    @Override
+    public void run() {
+      try {
+        start.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+      int i = (int) getId();
+      while (step.running) {
+        long started = System.nanoTime();
+        controller.placeOrder(requests[i++ & (REQUESTS - 1)]);
+        histogram.record(System.nanoTime() - started);
+        operations++;
+      }
+      allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    }
+  }
+
+  private static final class Step {
+    private volatile boolean running = true;
+  }
+
+  private static final class Result {
+    private boolean aspect;
+    private String level;
+    private int threads;
+    private double throughput;
+    private long p50;
+    private long p90;
+    private long p99;
+    private long p999;
+    private long bytesPerOperation;
+    private long gcCount;
+    private long gcMillis;
+    private double overhead = Double.NaN;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parse(args);
+    int maxThreads = Integer.parseInt(options.getOrDefault("threads",
+        String.valueOf(2 * Runtime.getRuntime().availableProcessors())));
+    long duration = Long.parseLong(options.getOrDefault("duration", "10"));
+    long warmup = Long.parseLong(options.getOrDefault("warmup", "3"));
+    String[] levels = options.getOrDefault("levels", "ERROR,INFO,DEBUG").split(",");
+    int lines = Integer.parseInt(options.getOrDefault("lines", "3"));
+    Path report = Paths.get(options.getOrDefault("report", "build/perf/aspect-load.csv"));
+
+    OrderRequest[] requests = requests(lines);
+    Map<String, Result> baselines = new HashMap<>();
+    List<Result> results = new ArrayList<>();
+    System.out.println(header());
+    for (boolean aspect : new boolean[] {false, true}) {
+      for (String level : levels) {
+        try (ConfigurableApplicationContext context = start(aspect, level.trim())) {
+          OrderController controller = context.getBean(OrderController.class);
+          for (int threads : threadCounts(maxThreads)) {
+            run(controller, requests, threads, warmup);
+            Result result = run(controller, requests, threads, duration);
+            result.aspect = aspect;
+            result.level = level.trim();
+            String key = result.level + '/' + threads;
+            if (aspect) {
+              Result baseline = baselines.get(key);
+              if (baseline != null) {
+                result.overhead = 100 * (baseline.throughput / result.throughput - 1);
+              }
+            } else {
+              baselines.put(key, result);
+            }
+            results.add(result);
+            System.out.println(row(result));
+          }
+        }
+      }
+    }
+    write(report, results);
+    System.out.println("Report: " + report.toAbsolutePath());
+  }
+
+  /**
+   * Starts the synthetic application
+   * @param aspect true to register LogUtil aspect
+   * @param level application log level
+   * @param properties additional properties, name=value
+   * @return application context
+   */
+  static ConfigurableApplicationContext start(boolean aspect, String level,
+      String... properties) {
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(PerfApplication.class)
+        .web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false)
+        .properties("logging.level.com=" + level).properties(properties);
+    if (aspect) {
+      builder.sources(LogUtil.class);
+    }
+    ConfigurableApplicationContext context = builder.run();
+    // LogUtil reads logging.level on init; the property clashes with Boot's logging.level map
+    LogUtil.setAppLogLevel(level);
+    return context;
+  }
+
+  private static Result run(OrderController controller, OrderRequest[] requests, int threads,
+      long seconds) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    Step step = new Step();
+    Worker[] workers = new Worker[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Worker(i, controller, requests, start, step);
+      workers[i].start();
+    }
+    long[] gcBefore = gc();
+    long started = System.nanoTime();
+    start.countDown();
+    Thread.sleep(seconds * 1000);
+    step.running = false;
+    for (Worker worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - started;
+    long[] gcAfter = gc();
+
+    LatencyHistogram histogram = new LatencyHistogram();
+    long operations = 0;
+    long allocated = 0;
+    for (Worker worker : workers) {
+      histogram.merge(worker.histogram);
+      operations += worker.operations;
+      allocated += worker.allocatedBytes;
+    }
+    Result result = new Result();
+    result.threads = threads;
+    result.throughput = operations * 1e9 / elapsed;
+    result.p50 = histogram.percentile(50);
+    result.p90 = histogram.percentile(90);
+    result.p99 = histogram.percentile(99);
+    result.p999 = histogram.percentile(99.9);
+    result.bytesPerOperation = operations == 0 ? 0 : allocated / operations;
+    result.gcCount = gcAfter[0] - gcBefore[0];
+    result.gcMillis = gcAfter[1] - gcBefore[1];
+    return result;
+  }
+
+  private static long[] gc() {
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return new long[] {count, millis};
+  }
+
+  private static List<Integer> threadCounts(int maxThreads) {
+    List<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(maxThreads);
+    return counts;
+  }
+
+  static OrderRequest[] requests(int lines) {
+    OrderRequest[] requests = new OrderRequest[REQUESTS];
+    for (int i = 0; i < REQUESTS; i++) {
+      List<OrderLine> orderLines = new ArrayList<>(lines);
+      for (int j = 0; j < lines; j++) {
+        orderLines.add(new OrderLine("SKU-" + (i * 31 + j), 1 + j, new BigDecimal("19.99")));
+      }
+      requests[i] = new OrderRequest("customer-" + i, "4111111111111111", orderLines);
+    }
+    return requests;
+  }
+
+  static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq < 0) {
+        throw new IllegalArgumentException("Expected --name=value: " + arg);
+      }
+      options.put(arg.substring(2, eq), arg.substring(eq + 1));
+    }
+    return options;
+  }
+
+  private static String header() {
+    return "aspect,level,threads,ops_per_sec,p50_us,p90_us,p99_us,p999_us,bytes_per_op,"
+        + "gc_count,gc_ms,overhead_pct";
+  }
+
+  private static String row(Result r) {
+    return String.format(Locale.ROOT, "%s,%s,%d,%.0f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%s",
+        r.aspect ? "on" : "off", r.level, r.threads, r.throughput, r.p50 / 1e3, r.p90 / 1e3,
+        r.p99 / 1e3, r.p999 / 1e3, r.bytesPerOperation, r.gcCount, r.gcMillis,
+        Double.isNaN(r.overhead) ? "" : String.format(Locale.ROOT, "%.1f", r.overhead));
+  }
+
+  private static void write(Path report, List<Result> results) throws IOException {
+    if (report.getParent() != null) {
+      Files.createDirectories(report.getParent());
+    }
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report))) {
+      out.println(header());
+      results.forEach(r -> out.println(row(r)));
+    }
+  }
+
+  private AspectLoadTest() {
+  }
+}
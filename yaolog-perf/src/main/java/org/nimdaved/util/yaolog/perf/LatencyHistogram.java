@@ -0,0 +1,65 @@
+package org.nimdaved.util.yaolog.perf;
+
+/**
+ * Allocation free log-linear histogram of nanosecond latencies, ~3% precision. Single writer;
+ * merge after the writers are done
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+
+  private final long[] counts = new long[64 << SUB_BITS];
+  private long total;
+
+  void record(long nanos) {
+    counts[index(Math.max(0, nanos))]++;
+    total++;
+  }
+
+  void merge(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    total += other.total;
+  }
+
+  long getTotal() {
+    return total;
+  }
+
+  /**
+   * @param percentile 0..100
+   * @return lower bound of the bucket holding the percentile, nanos
+   */
+  long percentile(double percentile) {
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return lowerBound(i);
+      }
+    }
+    return 0;
+  }
+
+  private static int index(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+    return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+  }
+
+  private static long lowerBound(int index) {
+    int group = index >>> SUB_BITS;
+    int sub = index & (SUB_COUNT - 1);
+    if (group == 0) {
+      return sub;
+    }
+    int exponent = group + SUB_BITS - 1;
+    return (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+  }
+}
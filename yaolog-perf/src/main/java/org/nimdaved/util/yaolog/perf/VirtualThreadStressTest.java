@@ -0,0 +1,247 @@
+package org.nimdaved.util.yaolog.perf;
+
+import com.nimdaved.yaolog.perf.app.OrderController;
+import com.nimdaved.yaolog.perf.app.OrderRequest;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.nimdaved.util.yaolog.InFlightCalls;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test of AOP logging on virtual threads (Java 21+). Runs N virtual threads, at most
+ * --concurrency at once, each placing one order through the advised controller, services and
+ * client of the synthetic application. The client parks for --latency-us inside the advised
+ * call, as remote calls do, so carriers switch between requests in the middle of the logging
+ * path. JFR streams jdk.VirtualThreadPinned events (any duration, with stack trace); carrier
+ * utilization is CPU time of the scheduler's carrier threads over elapsed time and parallelism.
+ * Fails, exit code 1, when pinning events exceed --max-pinned, utilization is below
+ * --min-utilization or a call fails.
+ * <p>Arguments, all optional:
+ * <pre>
+ * --threads=N          virtual threads, default 1000000
+ * --concurrency=N      max virtual threads at once, default 10000
+ * --level=L            application log level, default INFO
+ * --latency-us=N       client latency, microseconds, default 100
+ * --lines=N            order lines per request, default 3
+ * --buffer=B           yaolog.debug.buffer and yaolog.method.burst.collapse, default true
+ * --max-pinned=N       allowed pinning events, default 0
+ * --min-utilization=P  min carrier utilization, percent, default 0
+ * </pre>
+ * Log appender is selected with -Dyaolog.perf.appender=FILE|YAOLOG_FILE, see logback.xml
+ */
+public final class VirtualThreadStressTest {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+  // carrier threads of the default virtual thread scheduler
+  private static final String CARRIER_PREFIX = "ForkJoinPool-";
+  private static final String CARRIER_INFIX = "-worker-";
+
+  private static final LongAdder PINNED = new LongAdder();
+  private static final LongAdder PINNED_NANOS = new LongAdder();
+  private static final LongAdder SUBMIT_FAILED = new LongAdder();
+  private static final Map<String, LongAdder> PINNED_FRAMES = new ConcurrentHashMap<>();
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = AspectLoadTest.parse(args);
+    int threads = Integer.parseInt(options.getOrDefault("threads", "1000000"));
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "10000"));
+    String level = options.getOrDefault("level", "INFO");
+    long latencyMicros = Long.parseLong(options.getOrDefault("latency-us", "100"));
+    int lines = Integer.parseInt(options.getOrDefault("lines", "3"));
+    boolean buffer = Boolean.parseBoolean(options.getOrDefault("buffer", "true"));
+    long maxPinned = Long.parseLong(options.getOrDefault("max-pinned", "0"));
+    double minUtilization = Double.parseDouble(options.getOrDefault("min-utilization", "0"));
+
+    if (virtualThreads() == null) {
+      System.err.println("Virtual threads are not available, run with Java 21 or later");
+      System.exit(2);
+    }
+    OrderRequest[] requests = AspectLoadTest.requests(lines);
+    try (ConfigurableApplicationContext context = AspectLoadTest.start(true, level,
+        "yaolog.perf.client.latency.us=" + latencyMicros, "yaolog.method.inflight=true",
+        "yaolog.debug.buffer=" + buffer, "yaolog.method.burst.collapse=" + buffer)) {
+      OrderController controller = context.getBean(OrderController.class);
+      // warm up, not measured
+      run(controller, requests, Math.max(1, threads / 20), concurrency);
+      InFlightCalls.reset();
+
+      long failures;
+      long elapsed;
+      long carrierNanos;
+      LatencyHistogram histogram;
+      try (RecordingStream jfr = new RecordingStream()) {
+        jfr.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        jfr.enable(SUBMIT_FAILED_EVENT);
+        jfr.onEvent(PINNED_EVENT, VirtualThreadStressTest::pinned);
+        jfr.onEvent(SUBMIT_FAILED_EVENT, e -> SUBMIT_FAILED.increment());
+        jfr.startAsync();
+
+        Map<Long, Long> cpuBefore = carrierCpuNanos();
+        long started = System.nanoTime();
+        long[] latencies = run(controller, requests, threads, concurrency);
+        elapsed = System.nanoTime() - started;
+        carrierNanos = cpuDelta(cpuBefore, carrierCpuNanos());
+
+        histogram = new LatencyHistogram();
+        failures = 0;
+        for (long latency : latencies) {
+          if (latency < 0) {
+            failures++;
+          } else {
+            histogram.record(latency);
+          }
+        }
+        // events are streamed about once per second
+        Thread.sleep(2000);
+      }
+
+      int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+          Runtime.getRuntime().availableProcessors());
+      double utilization = 100.0 * carrierNanos / ((double) elapsed * parallelism);
+      int peak = InFlightCalls.getGauges().stream()
+          .filter(g -> g.getMethod().endsWith(".placeOrder")).mapToInt(InFlightCalls.Gauge::getPeak)
+          .max().orElse(0);
+
+      System.out.println("virtual_threads,concurrency,level,latency_us,ops_per_sec,p50_us,p99_us,"
+          + "p999_us,failures,pinned,pinned_ms,submit_failed,carrier_util_pct,peak_in_flight");
+      System.out.println(String.format(Locale.ROOT,
+          "%d,%d,%s,%d,%.0f,%.1f,%.1f,%.1f,%d,%d,%d,%d,%.1f,%d", threads, concurrency, level,
+          latencyMicros, threads * 1e9 / elapsed, histogram.percentile(50) / 1e3,
+          histogram.percentile(99) / 1e3, histogram.percentile(99.9) / 1e3, failures,
+          PINNED.sum(), TimeUnit.NANOSECONDS.toMillis(PINNED_NANOS.sum()), SUBMIT_FAILED.sum(),
+          utilization, peak));
+      PINNED_FRAMES.entrySet().stream()
+          .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum())
+              .reversed())
+          .limit(10)
+          .forEach(e -> System.out.println("pinned " + e.getValue().sum() + " at " + e.getKey()));
+
+      boolean failed = false;
+      if (PINNED.sum() > maxPinned) {
+        System.out.println("FAILED: " + PINNED.sum() + " pinning events, max " + maxPinned);
+        failed = true;
+      }
+      if (utilization < minUtilization) {
+        System.out.println(String.format(Locale.ROOT,
+            "FAILED: carrier utilization %.1f%%, min %.1f%%", utilization, minUtilization));
+        failed = true;
+      }
+      if (failures > 0) {
+        System.out.println("FAILED: " + failures + " calls failed");
+        failed = true;
+      }
+      if (failed) {
+        System.exit(1);
+      }
+    }
+  }
+
+  /**
+   * Runs one virtual thread per request
+   * @return latency per request, nanos, -1 for failed calls
+   */
+  private static long[] run(OrderController controller, OrderRequest[] requests, int threads,
+      int concurrency) throws InterruptedException {
+    long[] latencies = new long[threads];
+    Semaphore permits = new Semaphore(concurrency);
+    ExecutorService executor = virtualThreads();
+    try {
+      for (int i = 0; i < threads; i++) {
+        permits.acquire();
+        final int n = i;
+        executor.execute(() -> {
+          try {
+            long started = System.nanoTime();
+            controller.placeOrder(requests[n & (AspectLoadTest.REQUESTS - 1)]);
+            latencies[n] = System.nanoTime() - started;
+          } catch (RuntimeException e) {
+            latencies[n] = -1;
+          } finally {
+            permits.release();
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.HOURS);
+    }
+    return latencies;
+  }
+
+  /**
+   * Executors.newVirtualThreadPerTaskExecutor() of Java 21; compiles with Java 17
+   * @return executor or null if virtual threads are not available
+   */
+  private static ExecutorService virtualThreads() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  private static void pinned(RecordedEvent event) {
+    PINNED.increment();
+    PINNED_NANOS.add(event.getDuration().toNanos());
+    PINNED_FRAMES.computeIfAbsent(frame(event), f -> new LongAdder()).increment();
+  }
+
+  /**
+   * @return first frame outside the JDK, where the carrier got pinned
+   */
+  private static String frame(RecordedEvent event) {
+    if (event.getStackTrace() == null) {
+      return "unknown";
+    }
+    for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+      String type = frame.getMethod().getType().getName();
+      if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+        return type + '.' + frame.getMethod().getName() + ':' + frame.getLineNumber();
+      }
+    }
+    return "jdk";
+  }
+
+  private static Map<Long, Long> carrierCpuNanos() {
+    Map<Long, Long> cpu = new HashMap<>();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      String name = thread.getName();
+      if (name.startsWith(CARRIER_PREFIX) && name.contains(CARRIER_INFIX)) {
+        long nanos = THREADS.getThreadCpuTime(thread.getId());
+        if (nanos >= 0) {
+          cpu.put(thread.getId(), nanos);
+        }
+      }
+    }
+    return cpu;
+  }
+
+  private static long cpuDelta(Map<Long, Long> before, Map<Long, Long> after) {
+    long delta = 0;
+    for (Map.Entry<Long, Long> e : after.entrySet()) {
+      delta += e.getValue() - before.getOrDefault(e.getKey(), 0L);
+    }
+    return delta;
+  }
+
+  private VirtualThreadStressTest() {
+  }
+}
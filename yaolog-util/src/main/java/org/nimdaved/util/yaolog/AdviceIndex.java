@@ -0,0 +1,115 @@
+package org.nimdaved.util.yaolog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Build time index of advised classes generated by {@link AdviceIndexProcessor}. Lets AOP logging
+ * skip reflective discovery of {@link LogInfo} and {@link HideLogElements} on the first call of a
+ * method, and in native image. Format of META-INF/yaolog/advice.index (properties):
+ * <pre>
+ * com.acme.FooService=info,hideAnnotated,hideReturnValue
+ * com.acme.FooService#find(java.lang.String,int)=info
+ * com.acme.FooService#count()=
+ * </pre>
+ * Every indexed class and each of its methods, annotated or not, has an entry. Methods without
+ * entry, e.g. erased bridge methods of generic interfaces or methods of a newer superclass, are
+ * looked up at run time.
+ */
+final class AdviceIndex {
+
+  static final String RESOURCE = "META-INF/yaolog/advice.index";
+  static final String INFO = "info";
+  static final String HIDE_ANNOTATED = "hideAnnotated";
+  static final String HIDE_RETURN_VALUE = "hideReturnValue";
+  static final String HIDE_PARAMETERS = "hideParameters";
+  static final char METHOD_SEPARATOR = '#';
+
+  private static final class Holder {
+    private static final Map<String, String> ENTRIES = load();
+  }
+
+  /**
+   * Finds indexed settings of the method invoked on the target class
+   * @param targetClass class of the advised object
+   * @param method invoked method
+   * @return settings or null if the class or the method is not indexed
+   */
+  static AdviceSettings find(Class<?> targetClass, Method method) {
+    Map<String, String> entries = Holder.ENTRIES;
+    String classFlags = entries.isEmpty() ? null : entries.get(targetClass.getName());
+    if (classFlags == null) {
+      return null;
+    }
+    String methodFlags = entries.get(targetClass.getName() + METHOD_SEPARATOR + methodKey(method));
+    if (methodFlags == null) {
+      return null;
+    }
+    // class level @HideLogElements takes precedence, see LogUtil.hideElement
+    String hideFlags = has(classFlags, HIDE_ANNOTATED) ? classFlags : methodFlags;
+    return new AdviceSettings(has(classFlags, INFO) || has(methodFlags, INFO),
+        has(hideFlags, HIDE_RETURN_VALUE), has(hideFlags, HIDE_PARAMETERS));
+  }
+
+  /**
+   * Method key as generated by the processor: name(parameterType,...)
+   * @param method method
+   * @return method key
+   */
+  static String methodKey(Method method) {
+    StringBuilder sb = new StringBuilder(method.getName()).append('(');
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(parameterTypes[i].getTypeName());
+    }
+    return sb.append(')').toString();
+  }
+
+  private static boolean has(String flags, String flag) {
+    int from = 0;
+    while (from <= flags.length()) {
+      int to = flags.indexOf(',', from);
+      to = to < 0 ? flags.length() : to;
+      if (flags.regionMatches(from, flag, 0, flag.length()) && to - from == flag.length()) {
+        return true;
+      }
+      from = to + 1;
+    }
+    return false;
+  }
+
+  private static Map<String, String> load() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      classLoader = AdviceIndex.class.getClassLoader();
+    }
+    Map<String, String> entries = new HashMap<>();
+    try {
+      Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+      while (resources.hasMoreElements()) {
+        Properties properties = new Properties();
+        try (InputStream in = resources.nextElement().openStream()) {
+          properties.load(in);
+        }
+        properties.forEach((k, v) -> entries.put((String) k, (String) v));
+      }
+    } catch (IOException | RuntimeException e) {
+      LogUtil.errorMethodException(AdviceIndex.class, e, "load", RESOURCE);
+      return Collections.emptyMap();
+    }
+    return entries;
+  }
+
+  private AdviceIndex() {
+  }
+}
@@ -0,0 +1,278 @@
+package org.nimdaved.util.yaolog;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Build time step for GraalVM native image support; also spares the reflective annotation lookup
+ * on the first call of each advised method. Spring AOP still matches its pointcut against every
+ * bean at startup, the index does not change that. For every class under
+ * Shadow.ROOT_PACKAGE of the compiled project (or -Ayaolog.rootPackage) generates:
+ * 1. META-INF/yaolog/advice.index with precomputed {@link LogInfo} and {@link HideLogElements}
+ * settings, see {@link AdviceIndex}
+ * 2. META-INF/native-image/yaolog/advice/reflect-config.json and resource-config.json with
+ * reflection hints for advised classes and {@link Loggable} renderers
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(AdviceIndexProcessor.ROOT_PACKAGE_OPTION)
+public class AdviceIndexProcessor extends AbstractProcessor {
+
+  static final String ROOT_PACKAGE_OPTION = "yaolog.rootPackage";
+  private static final String NATIVE_IMAGE_DIR = "META-INF/native-image/yaolog/advice/";
+
+  private final Map<String, String> index = new TreeMap<>();
+  private final Set<String> renderers = new TreeSet<>();
+  private String rootPackage;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    rootPackage = processingEnv.getOptions().get(ROOT_PACKAGE_OPTION);
+    if (rootPackage == null) {
+      // shadowed value of the compiled project, not the one bundled with the processor
+      TypeElement shadow = processingEnv.getElementUtils().getTypeElement(Shadow.class.getName());
+      Object value = shadow == null ? null
+          : ElementFilter.fieldsIn(shadow.getEnclosedElements()).stream()
+              .filter(f -> f.getSimpleName().contentEquals("ROOT_PACKAGE"))
+              .map(VariableElement::getConstantValue).findFirst().orElse(null);
+      rootPackage = value == null ? Shadow.ROOT_PACKAGE : value.toString();
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      write();
+    } else {
+      for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+        scan(type);
+      }
+    }
+    return false;
+  }
+
+  private void scan(TypeElement type) {
+    String name = type.getQualifiedName().toString();
+    if (name.startsWith(rootPackage + ".")) {
+      indexType(type);
+    }
+    if (type.getAnnotation(Loggable.class) != null) {
+      renderers.add(packagePrefix(type) + binaryName(type).substring(packagePrefix(type).length())
+          .replace('$', '_') + LoggableProcessor.RENDERER_SUFFIX);
+    }
+    for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+      scan(nested);
+    }
+  }
+
+  private void indexType(TypeElement type) {
+    String className = binaryName(type);
+    StringJoiner classFlags = new StringJoiner(",");
+    if (inheritsInfo(type)) {
+      classFlags.add(AdviceIndex.INFO);
+    }
+    HideLogElements hide = findHide(type);
+    if (hide != null) {
+      classFlags.add(AdviceIndex.HIDE_ANNOTATED);
+      addHideFlags(classFlags, hide);
+    }
+    index.put(className, classFlags.toString());
+
+    for (ExecutableElement method : ElementFilter
+        .methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      Set<Modifier> modifiers = method.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+          || ((TypeElement) method.getEnclosingElement()).getQualifiedName()
+              .contentEquals(Object.class.getName())) {
+        continue;
+      }
+      StringJoiner methodFlags = new StringJoiner(",");
+      List<ExecutableElement> hierarchy = overridden(type, method);
+      if (hierarchy.stream().anyMatch(m -> m.getAnnotation(LogInfo.class) != null)) {
+        methodFlags.add(AdviceIndex.INFO);
+      }
+      hierarchy.stream().map(m -> m.getAnnotation(HideLogElements.class))
+          .filter(h -> h != null).findFirst().ifPresent(h -> addHideFlags(methodFlags, h));
+      // unannotated methods are indexed too; missing key means runtime lookup
+      index.put(className + AdviceIndex.METHOD_SEPARATOR + methodKey(method),
+          methodFlags.toString());
+    }
+  }
+
+  private void addHideFlags(StringJoiner flags, HideLogElements hide) {
+    if (hide.hideReturnValue()) {
+      flags.add(AdviceIndex.HIDE_RETURN_VALUE);
+    }
+    if (hide.hideParameters()) {
+      flags.add(AdviceIndex.HIDE_PARAMETERS);
+    }
+  }
+
+  /**
+   * Class or superclass annotated with @LogInfo, i.e. Class.isAnnotationPresent semantics
+   */
+  private boolean inheritsInfo(TypeElement type) {
+    for (TypeElement t = type; t != null; t = superclass(t)) {
+      if (t.getAnnotation(LogInfo.class) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Class, its interfaces or superclasses annotated with @HideLogElements, i.e.
+   * AnnotationUtils.findAnnotation semantics
+   */
+  private HideLogElements findHide(TypeElement type) {
+    for (TypeElement t : supertypes(type)) {
+      HideLogElements hide = t.getAnnotation(HideLogElements.class);
+      if (hide != null) {
+        return hide;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The method followed by methods it overrides in all supertypes
+   */
+  private List<ExecutableElement> overridden(TypeElement type, ExecutableElement method) {
+    List<ExecutableElement> hierarchy = new ArrayList<>();
+    hierarchy.add(method);
+    for (TypeElement t : supertypes(type)) {
+      for (ExecutableElement m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+        if (m != method && m.getSimpleName().contentEquals(method.getSimpleName())
+            && processingEnv.getElementUtils().overrides(method, m, type)) {
+          hierarchy.add(m);
+        }
+      }
+    }
+    return hierarchy;
+  }
+
+  /**
+   * The type followed by its interfaces and superclasses, breadth first
+   */
+  private Set<TypeElement> supertypes(TypeElement type) {
+    Set<TypeElement> supertypes = new LinkedHashSet<>();
+    List<TypeElement> queue = new ArrayList<>();
+    queue.add(type);
+    for (int i = 0; i < queue.size(); i++) {
+      TypeElement t = queue.get(i);
+      if (supertypes.add(t)) {
+        for (TypeMirror s : processingEnv.getTypeUtils().directSupertypes(t.asType())) {
+          if (s.getKind() == TypeKind.DECLARED) {
+            queue.add((TypeElement) ((DeclaredType) s).asElement());
+          }
+        }
+      }
+    }
+    return supertypes;
+  }
+
+  private TypeElement superclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED
+        ? (TypeElement) ((DeclaredType) superclass).asElement()
+        : null;
+  }
+
+  /**
+   * Same as {@link AdviceIndex#methodKey(java.lang.reflect.Method)}
+   */
+  private String methodKey(ExecutableElement method) {
+    StringJoiner parameters = new StringJoiner(",", method.getSimpleName() + "(", ")");
+    for (VariableElement parameter : method.getParameters()) {
+      parameters.add(typeName(parameter.asType()));
+    }
+    return parameters.toString();
+  }
+
+  /**
+   * Runtime Class.getTypeName() of the erased type
+   */
+  private String typeName(TypeMirror type) {
+    TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+    if (erased.getKind() == TypeKind.ARRAY) {
+      return typeName(((ArrayType) erased).getComponentType()) + "[]";
+    } else if (erased.getKind() == TypeKind.DECLARED) {
+      return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+    }
+    return erased.toString();
+  }
+
+  private String binaryName(TypeElement type) {
+    return processingEnv.getElementUtils().getBinaryName(type).toString();
+  }
+
+  private String packagePrefix(Element element) {
+    String packageName =
+        processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    return packageName.isEmpty() ? "" : packageName + ".";
+  }
+
+  private void write() {
+    if (index.isEmpty() && renderers.isEmpty()) {
+      return;
+    }
+    StringBuilder properties = new StringBuilder("# Generated by ")
+        .append(getClass().getName()).append(" for ").append(rootPackage).append('\n');
+    index.forEach((k, v) -> properties.append(k).append('=').append(v).append('\n'));
+
+    StringJoiner reflection = new StringJoiner(",\n", "[\n", "\n]\n");
+    index.keySet().stream().filter(k -> k.indexOf(AdviceIndex.METHOD_SEPARATOR) < 0)
+        .forEach(k -> reflection.add("  {\"name\": \"" + k
+            + "\", \"queryAllDeclaredMethods\": true, \"queryAllPublicMethods\": true}"));
+    renderers.forEach(r -> reflection.add("  {\"name\": \"" + r
+        + "\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}"));
+
+    String resources = "{\n  \"resources\": {\n    \"includes\": [{\"pattern\": \"\\\\Q"
+        + AdviceIndex.RESOURCE + "\\\\E\"}]\n  }\n}\n";
+
+    writeResource(AdviceIndex.RESOURCE, properties.toString());
+    writeResource(NATIVE_IMAGE_DIR + "reflect-config.json", reflection.toString());
+    writeResource(NATIVE_IMAGE_DIR + "resource-config.json", resources);
+  }
+
+  private void writeResource(String name, String content) {
+    try (Writer writer = processingEnv.getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", name).openWriter()) {
+      writer.write(content);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write " + name + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package org.nimdaved.util.yaolog;
+
+/**
+ * Precomputed AOP logging settings of a method: {@link LogInfo} and {@link HideLogElements}
+ * declared on the method, its class or their supertypes
+ */
+final class AdviceSettings {
+
+  static final long JFR_DISABLED = -1;
+
+  private final boolean info;
+  private final boolean hideReturnValue;
+  private final boolean hideParameters;
+  private final long jfrThresholdNanos;
+  private final long deadlineNanos;
+
+  AdviceSettings(boolean info, boolean hideReturnValue, boolean hideParameters) {
+    this(info, hideReturnValue, hideParameters, JFR_DISABLED, InFlightCalls.NO_DEADLINE);
+  }
+
+  private AdviceSettings(boolean info, boolean hideReturnValue, boolean hideParameters,
+      long jfrThresholdNanos, long deadlineNanos) {
+    this.info = info;
+    this.hideReturnValue = hideReturnValue;
+    this.hideParameters = hideParameters;
+    this.jfrThresholdNanos = jfrThresholdNanos;
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Copy of these settings with JFR mode threshold
+   * @param jfrThresholdNanos min duration of recorded invocations or JFR_DISABLED
+   * @return settings
+   */
+  AdviceSettings withJfrThreshold(long jfrThresholdNanos) {
+    return jfrThresholdNanos == this.jfrThresholdNanos ? this
+        : new AdviceSettings(info, hideReturnValue, hideParameters, jfrThresholdNanos,
+            deadlineNanos);
+  }
+
+  /**
+   * Copy of these settings with watchdog deadline
+   * @param deadlineNanos max duration of invocations or InFlightCalls.NO_DEADLINE
+   * @return settings
+   */
+  AdviceSettings withDeadline(long deadlineNanos) {
+    return deadlineNanos == this.deadlineNanos ? this
+        : new AdviceSettings(info, hideReturnValue, hideParameters, jfrThresholdNanos,
+            deadlineNanos);
+  }
+
+  boolean isInfo() {
+    return info;
+  }
+
+  boolean isHideReturnValue() {
+    return hideReturnValue;
+  }
+
+  boolean isHideParameters() {
+    return hideParameters;
+  }
+
+  long getJfrThresholdNanos() {
+    return jfrThresholdNanos;
+  }
+
+  long getDeadlineNanos() {
+    return deadlineNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "AdviceSettings{info=" + info + ", hideReturnValue=" + hideReturnValue
+        + ", hideParameters=" + hideParameters + ", jfrThresholdNanos=" + jfrThresholdNanos
+        + ", deadlineNanos=" + deadlineNanos + "}";
+  }
+}
@@ -0,0 +1,163 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-method aggregates of bytes allocated by the invoking thread during advised method
+ * execution (yaolog.method.allocation.log). Measured with
+ * com.sun.management.ThreadMXBean.getCurrentThreadAllocatedBytes; includes allocations of nested
+ * advised calls and their logging. Virtual threads are not measured. Usage:
+ * <pre>
+ * LogUtil.info(this, AllocationStats.report(20));
+ * </pre>
+ */
+public final class AllocationStats {
+
+  private static final com.sun.management.ThreadMXBean THREADS = threads();
+  private static final Map<Method, Aggregate> METHODS = new ConcurrentHashMap<>(256);
+  // set once unmeasured (virtual) thread is reported
+  private static final AtomicBoolean UNMEASURED_WARNED = new AtomicBoolean();
+
+  /**
+   * Allocation aggregate of a method
+   */
+  public static final class Aggregate {
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    private void add(long allocated) {
+      invocations.increment();
+      bytes.add(allocated);
+      max.accumulate(allocated);
+    }
+
+    public long getInvocations() {
+      return invocations.sum();
+    }
+
+    public long getBytes() {
+      return bytes.sum();
+    }
+
+    public long getMaxBytes() {
+      return max.get();
+    }
+
+    public long getAverageBytes() {
+      long count = getInvocations();
+      return count == 0 ? 0 : getBytes() / count;
+    }
+
+    @Override
+    public String toString() {
+      return "invocations=" + getInvocations() + ", bytes=" + getBytes() + ", avg="
+          + getAverageBytes() + ", max=" + getMaxBytes();
+    }
+  }
+
+  /**
+   * Checks JVM support of thread allocation accounting
+   * @return true if allocated bytes could be measured
+   */
+  public static boolean isSupported() {
+    return THREADS != null;
+  }
+
+  /**
+   * Bytes allocated by the current thread so far
+   * @return allocated bytes or -1 if not supported or the thread is virtual
+   */
+  static long allocatedBytes() {
+    if (THREADS == null) {
+      return -1;
+    }
+    long allocated = THREADS.getCurrentThreadAllocatedBytes();
+    if (allocated < 0 && UNMEASURED_WARNED.compareAndSet(false, true)) {
+      LoggerFactory.getLogger(AllocationStats.class).warn("Allocation accounting is off for "
+          + Thread.currentThread() + " and other virtual threads");
+    }
+    return allocated;
+  }
+
+  /**
+   * Bytes allocated by the current thread since the measurement
+   * @param allocatedBefore value of {@link #allocatedBytes()} at measurement start
+   * @return allocated bytes or -1 if not measured
+   */
+  static long allocatedSince(long allocatedBefore) {
+    return allocatedBefore < 0 ? -1 : Math.max(0, allocatedBytes() - allocatedBefore);
+  }
+
+  static void record(Method method, long allocated) {
+    Aggregate aggregate = METHODS.get(method);
+    if (aggregate == null) {
+      aggregate = METHODS.computeIfAbsent(method, m -> new Aggregate());
+    }
+    aggregate.add(allocated);
+  }
+
+  /**
+   * Live view of aggregates per method
+   * @return unmodifiable map
+   */
+  public static Map<Method, Aggregate> getAggregates() {
+    return Collections.unmodifiableMap(METHODS);
+  }
+
+  /**
+   * One line report of methods allocating most
+   * @param top number of methods to report
+   * @return report without new line characters
+   */
+  public static String report(int top) {
+    List<Map.Entry<Method, Aggregate>> entries = new ArrayList<>(METHODS.entrySet());
+    entries.sort(Comparator.comparingLong(
+        (Map.Entry<Method, Aggregate> e) -> e.getValue().getBytes()).reversed());
+    StringBuilder sb = new StringBuilder("Allocation by method: ");
+    for (int i = 0; i < Math.min(top, entries.size()); i++) {
+      Method method = entries.get(i).getKey();
+      sb.append(i == 0 ? "" : "; ").append(method.getDeclaringClass().getSimpleName())
+          .append('.').append(method.getName()).append(" {").append(entries.get(i).getValue())
+          .append('}');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Clears aggregates
+   */
+  public static void reset() {
+    METHODS.clear();
+  }
+
+  private static com.sun.management.ThreadMXBean threads() {
+    try {
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (threads.isThreadAllocatedMemorySupported()) {
+          threads.setThreadAllocatedMemoryEnabled(true);
+          return threads;
+        }
+      }
+    } catch (LinkageError | RuntimeException e) {
+      // jdk.management module is not available
+    }
+    return null;
+  }
+
+  private AllocationStats() {
+  }
+}
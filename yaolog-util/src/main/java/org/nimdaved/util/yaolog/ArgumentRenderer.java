@@ -0,0 +1,18 @@
+package org.nimdaved.util.yaolog;
+
+/**
+ * Renders method parameter or return value into the log message without calling its
+ * toString(). Register custom renderers with {@link ArgumentRenderers#register(Class, ArgumentRenderer)}
+ * @param <T> rendered type
+ */
+@FunctionalInterface
+public interface ArgumentRenderer<T> {
+
+  /**
+   * Appends value representation to the context. Nested values should be rendered by
+   * {@link RenderContext#render(Object)} to keep depth and cycle guards
+   * @param value not null value
+   * @param context render context
+   */
+  void render(T value, RenderContext context);
+}
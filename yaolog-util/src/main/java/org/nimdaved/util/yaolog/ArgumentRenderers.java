@@ -0,0 +1,425 @@
+package org.nimdaved.util.yaolog;
+
+import org.apache.commons.lang3.ClassUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.channels.Channel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of type aware renderers used by AOP logging instead of toString() on parameters and
+ * return values. Renderer lookup is cached per class. Built-in renderers:
+ * 1. JPA entities and Hibernate proxies: class name and id, no lazy loading
+ * 2. byte[]: length and hash
+ * 3. Arrays, collections, maps and Optional: limited number of items
+ * 4. Streams, readers, writers and channels: type only
+ * 5. {@link Loggable} classes: renderer generated at compile time; class name only if it is
+ * missing, as masked fields are not known at run time
+ * 6. Anything else: toString(), truncated to max length; failures of toString() are rendered as
+ * type name
+ */
+public final class ArgumentRenderers {
+
+  private static final String NULL = "null";
+  private static final String SEPARATOR = ", ";
+  private static final String[] ENTITY_ANNOTATIONS =
+      {"javax.persistence.Entity", "jakarta.persistence.Entity"};
+  private static final String[] ID_ANNOTATIONS = {"javax.persistence.Id",
+      "jakarta.persistence.Id", "javax.persistence.EmbeddedId", "jakarta.persistence.EmbeddedId"};
+  private static final String HIBERNATE_PROXY = "org.hibernate.proxy.HibernateProxy";
+  private static final String HIBERNATE_LAZY_INITIALIZER = "org.hibernate.proxy.LazyInitializer";
+  private static final String HIBERNATE_COLLECTION = "org.hibernate.collection.spi.PersistentCollection";
+
+  private static final Map<Class<?>, ArgumentRenderer<?>> REGISTERED = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, ArgumentRenderer<Object>> RESOLVED =
+      new ConcurrentHashMap<>(256);
+  // Loggable classes without generated renderer, warned about
+  private static final Set<Class<?>> UNGENERATED = ConcurrentHashMap.newKeySet();
+
+  private static volatile int collectionLimit = 10;
+  private static volatile int maxDepth = 3;
+  private static volatile int toStringMax = 1000;
+
+  /** Marks renderers that never render nested values, so they need no depth or cycle guard */
+  @FunctionalInterface
+  private interface Leaf extends ArgumentRenderer<Object> {
+  }
+
+  private static final Leaf TO_STRING = (v, c) -> c.append(String.valueOf(v));
+  private static final Leaf SAFE_TO_STRING = ArgumentRenderers::renderToString;
+  // Loggable class without generated renderer; never toString(), which may expose masked fields
+  private static final Leaf UNRENDERED = (v, c) -> c.append(v.getClass().getSimpleName())
+      .append("[?]");
+  private static final Leaf TYPE_ONLY = (v, c) -> c.append('<').append(v.getClass().getName())
+      .append('>');
+  private static final Leaf BYTES = (v, c) -> c.append("byte[length=")
+      .append(((byte[]) v).length).append(", hash=")
+      .append(Integer.toHexString(Arrays.hashCode((byte[]) v))).append(']');
+  private static final ArgumentRenderer<Object> ARRAY = ArgumentRenderers::renderArray;
+  private static final ArgumentRenderer<Object> COLLECTION =
+      (v, c) -> renderItems(((Collection<?>) v).size(), ((Collection<?>) v).iterator(), c);
+  private static final ArgumentRenderer<Object> MAP = ArgumentRenderers::renderMap;
+  private static final ArgumentRenderer<Object> OPTIONAL = (v, c) -> {
+    Optional<?> o = (Optional<?>) v;
+    if (o.isPresent()) {
+      c.append("Optional[").render(o.get()).append(']');
+    } else {
+      c.append("Optional.empty");
+    }
+  };
+
+  /**
+   * Registers renderer for the type and its subtypes. Overrides built-in renderers
+   * @param type rendered type
+   * @param renderer renderer
+   * @param <T> rendered type
+   */
+  public static <T> void register(Class<T> type, ArgumentRenderer<? super T> renderer) {
+    REGISTERED.put(type, renderer);
+    RESOLVED.clear();
+  }
+
+  /**
+   * Sets rendering limits
+   * @param limit max number of collection, map or array items to render
+   * @param depth max depth of nested collections, maps, arrays and custom rendered objects
+   */
+  public static void configure(int limit, int depth) {
+    configure(limit, depth, toStringMax);
+  }
+
+  /**
+   * Sets rendering limits
+   * @param limit max number of collection, map or array items to render
+   * @param depth max depth of nested collections, maps, arrays and custom rendered objects
+   * @param toStringLength max length of toString() of values without renderer
+   */
+  public static void configure(int limit, int depth, int toStringLength) {
+    collectionLimit = Math.max(0, limit);
+    maxDepth = Math.max(1, depth);
+    toStringMax = Math.max(0, toStringLength);
+  }
+
+  /**
+   * Renders single value
+   * @param value any value, could be null
+   * @return string representation
+   */
+  public static String render(Object value) {
+    return new RenderContext(new StringBuilder(), collectionLimit, maxDepth).render(value)
+        .toString();
+  }
+
+  /**
+   * Renders all values in the same format as Arrays.deepToString(), e.g. method parameters
+   * @param values values, could be null
+   * @return string representation
+   */
+  public static String renderAll(Object... values) {
+    if (values == null) {
+      return NULL;
+    }
+    RenderContext context = new RenderContext(new StringBuilder(), collectionLimit, maxDepth);
+    context.append('[');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        context.append(SEPARATOR);
+      }
+      context.render(values[i]);
+    }
+    return context.append(']').toString();
+  }
+
+  static ArgumentRenderer<Object> rendererFor(Class<?> c) {
+    ArgumentRenderer<Object> renderer = RESOLVED.get(c);
+    return renderer != null ? renderer : RESOLVED.computeIfAbsent(c, ArgumentRenderers::resolve);
+  }
+
+  static boolean isLeaf(ArgumentRenderer<?> renderer) {
+    return renderer instanceof Leaf;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ArgumentRenderer<Object> resolve(Class<?> c) {
+    if (!REGISTERED.isEmpty()) {
+      for (Class<?> type = c; type != null; type = type.getSuperclass()) {
+        if (REGISTERED.containsKey(type)) {
+          return (ArgumentRenderer<Object>) REGISTERED.get(type);
+        }
+      }
+      for (Class<?> type : ClassUtils.getAllInterfaces(c)) {
+        if (REGISTERED.containsKey(type)) {
+          return (ArgumentRenderer<Object>) REGISTERED.get(type);
+        }
+      }
+    }
+    return builtIn(c);
+  }
+
+  private static ArgumentRenderer<Object> builtIn(Class<?> c) {
+    ArgumentRenderer<Object> generated = generated(c);
+    if (generated != null) {
+      return generated;
+    } else if (c == byte[].class) {
+      return BYTES;
+    } else if (c.isArray()) {
+      return ARRAY;
+    } else if (CharSequence.class.isAssignableFrom(c) || Number.class.isAssignableFrom(c)
+        || c == Boolean.class || c == Character.class || c.isEnum() || c == Class.class) {
+      return TO_STRING;
+    } else if (c == Optional.class) {
+      return OPTIONAL;
+    } else if (implementsInterface(c, HIBERNATE_COLLECTION)) {
+      return new LazyCollectionRenderer(c);
+    } else if (Map.class.isAssignableFrom(c)) {
+      return MAP;
+    } else if (Collection.class.isAssignableFrom(c)) {
+      return COLLECTION;
+    } else if (InputStream.class.isAssignableFrom(c) || OutputStream.class.isAssignableFrom(c)
+        || Reader.class.isAssignableFrom(c) || Writer.class.isAssignableFrom(c)
+        || BaseStream.class.isAssignableFrom(c) || Channel.class.isAssignableFrom(c)) {
+      return TYPE_ONLY;
+    } else if (implementsInterface(c, HIBERNATE_PROXY)) {
+      return new ProxyRenderer(c);
+    } else if (isEntity(c)) {
+      return new EntityRenderer(c);
+    }
+    return SAFE_TO_STRING;
+  }
+
+  /**
+   * Renderer generated by {@link LoggableProcessor} for {@link Loggable} class
+   */
+  @SuppressWarnings("unchecked")
+  private static ArgumentRenderer<Object> generated(Class<?> c) {
+    if (!c.isAnnotationPresent(Loggable.class)) {
+      return null;
+    }
+    String name = c.getPackageName().isEmpty() ? c.getName()
+        : c.getPackageName() + "." + c.getName().substring(c.getPackageName().length() + 1)
+            .replace('$', '_');
+    try {
+      return (ArgumentRenderer<Object>) Class
+          .forName(name + LoggableProcessor.RENDERER_SUFFIX, true, c.getClassLoader())
+          .getConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      // annotation processor was not run
+      if (UNGENERATED.add(c)) {
+        LoggerFactory.getLogger(ArgumentRenderers.class).warn("No generated renderer for "
+            + "@Loggable " + c.getName() + ", rendered as " + c.getSimpleName()
+            + "[?]; add yaolog-util to the annotation processor path");
+      }
+      return UNRENDERED;
+    }
+  }
+
+  private static void renderToString(Object value, RenderContext context) {
+    String s;
+    try {
+      s = String.valueOf(value);
+    } catch (RuntimeException | StackOverflowError e) {
+      // StackOverflowError of toString() of cyclic graph
+      context.append(value.getClass().getName()).append("{toString failed: ")
+          .append(e.getClass().getSimpleName()).append('}');
+      return;
+    }
+    int max = toStringMax;
+    if (s.length() > max) {
+      context.append(s.substring(0, max)).append("...(").append(s.length()).append(" chars)");
+    } else {
+      context.append(s);
+    }
+  }
+
+  private static void renderArray(Object array, RenderContext context) {
+    int length = Array.getLength(array);
+    int limit = Math.min(length, context.getLimit());
+    reduced(length, limit, context).append('[');
+    for (int i = 0; i < limit; i++) {
+      if (i > 0) {
+        context.append(SEPARATOR);
+      }
+      context.render(Array.get(array, i));
+    }
+    context.append(']');
+  }
+
+  private static void renderItems(int size, Iterator<?> items, RenderContext context) {
+    int limit = Math.min(size, context.getLimit());
+    reduced(size, limit, context).append('[');
+    for (int i = 0; i < limit && items.hasNext(); i++) {
+      if (i > 0) {
+        context.append(SEPARATOR);
+      }
+      context.render(items.next());
+    }
+    context.append(']');
+  }
+
+  private static void renderMap(Object value, RenderContext context) {
+    Map<?, ?> map = (Map<?, ?>) value;
+    int limit = Math.min(map.size(), context.getLimit());
+    reduced(map.size(), limit, context).append('{');
+    Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+    for (int i = 0; i < limit && entries.hasNext(); i++) {
+      Map.Entry<?, ?> entry = entries.next();
+      if (i > 0) {
+        context.append(SEPARATOR);
+      }
+      context.render(entry.getKey()).append('=').render(entry.getValue());
+    }
+    context.append('}');
+  }
+
+  private static RenderContext reduced(int size, int limit, RenderContext context) {
+    return size > limit ? context.append("Large entry of ").append(size)
+        .append(" items, reduced to first ").append(limit).append(" units: ") : context;
+  }
+
+  private static boolean implementsInterface(Class<?> c, String interfaceName) {
+    for (Class<?> type : ClassUtils.getAllInterfaces(c)) {
+      if (type.getName().equals(interfaceName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isEntity(Class<?> c) {
+    return hasAnnotation(c.getAnnotations(), ENTITY_ANNOTATIONS);
+  }
+
+  private static boolean hasAnnotation(Annotation[] annotations, String[] names) {
+    for (Annotation annotation : annotations) {
+      String name = annotation.annotationType().getName();
+      for (String n : names) {
+        if (n.equals(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void unknownId(Class<?> c, RenderContext context) {
+    context.append(c.getSimpleName()).append("[id=?]");
+  }
+
+  /**
+   * JPA entity: class name and id field read directly; getters may trigger lazy loading
+   */
+  private static final class EntityRenderer implements Leaf {
+    private final Field id;
+
+    EntityRenderer(Class<?> c) {
+      Field found = null;
+      for (Class<?> type = c; type != null && found == null; type = type.getSuperclass()) {
+        for (Field f : type.getDeclaredFields()) {
+          if (hasAnnotation(f.getAnnotations(), ID_ANNOTATIONS)) {
+            found = f;
+            break;
+          }
+        }
+      }
+      id = found != null && found.trySetAccessible() ? found : null;
+    }
+
+    @Override
+    public void render(Object value, RenderContext context) {
+      if (id == null) {
+        unknownId(value.getClass(), context);
+        return;
+      }
+      try {
+        context.append(value.getClass().getSimpleName()).append("[id=")
+            .append(String.valueOf(id.get(value))).append(']');
+      } catch (IllegalAccessException | RuntimeException e) {
+        context.append("?]");
+      }
+    }
+  }
+
+  /**
+   * Hibernate proxy: entity name and id taken from the lazy initializer without initialization
+   */
+  private static final class ProxyRenderer implements Leaf {
+    private final Class<?> proxyClass;
+    private Method initializer;
+    private Method identifier;
+
+    ProxyRenderer(Class<?> c) {
+      proxyClass = c;
+      try {
+        initializer = c.getMethod("getHibernateLazyInitializer");
+        identifier = Class.forName(HIBERNATE_LAZY_INITIALIZER, false, c.getClassLoader())
+            .getMethod("getIdentifier");
+      } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+        initializer = null;
+      }
+    }
+
+    @Override
+    public void render(Object value, RenderContext context) {
+      // proxy class extends the entity class
+      Class<?> entity = proxyClass.getSuperclass();
+      if (initializer == null) {
+        unknownId(entity, context);
+        return;
+      }
+      try {
+        Object id = identifier.invoke(initializer.invoke(value));
+        context.append(entity.getSimpleName()).append("[id=").append(String.valueOf(id))
+            .append(']');
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        unknownId(entity, context);
+      }
+    }
+  }
+
+  /**
+   * Hibernate persistent collection: items rendered only if the collection is already loaded
+   */
+  private static final class LazyCollectionRenderer implements ArgumentRenderer<Object> {
+    private Method initialized;
+
+    LazyCollectionRenderer(Class<?> c) {
+      try {
+        initialized = Class.forName(HIBERNATE_COLLECTION, false, c.getClassLoader())
+            .getMethod("wasInitialized");
+      } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+        initialized = null;
+      }
+    }
+
+    @Override
+    public void render(Object value, RenderContext context) {
+      try {
+        if (initialized != null && Boolean.TRUE.equals(initialized.invoke(value))) {
+          (value instanceof Map ? MAP : COLLECTION).render(value, context);
+          return;
+        }
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // fall through to uninitialized
+      }
+      context.append(value.getClass().getSimpleName()).append("{uninitialized}");
+    }
+  }
+
+  private ArgumentRenderers() {
+  }
+}
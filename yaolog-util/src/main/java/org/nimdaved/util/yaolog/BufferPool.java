@@ -0,0 +1,68 @@
+package org.nimdaved.util.yaolog;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free pool of per-request buffers. A buffer is taken by the outermost advised call
+ * and returned when it completes, so buffers are not tied to threads: with virtual threads every
+ * request runs in a new thread, and a thread local buffer would be allocated per request. The
+ * owner still finds the buffer of the running request through a thread local, which costs a
+ * ThreadLocal map per virtual thread, but not the buffer. Buffers are taken and returned by CAS,
+ * nobody waits; when the pool is empty a new buffer is created, when it is full the returned
+ * buffer is left to GC.
+ * @param <T> buffer type
+ */
+final class BufferPool<T> {
+
+  // slots probed by take and give before giving up
+  private static final int PROBES = 8;
+
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+  private final Supplier<T> factory;
+
+  /**
+   * @param factory creates buffers when the pool is empty
+   */
+  BufferPool(Supplier<T> factory) {
+    int size = Integer.highestOneBit(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.factory = factory;
+  }
+
+  /**
+   * @return pooled or new buffer
+   */
+  T take() {
+    final int start = probeStart();
+    for (int i = 0; i < PROBES; i++) {
+      final int slot = (start + i) & mask;
+      final T buffer = slots.get(slot);
+      if (buffer != null && slots.compareAndSet(slot, buffer, null)) {
+        return buffer;
+      }
+    }
+    return factory.get();
+  }
+
+  /**
+   * @param buffer buffer cleared by the caller
+   */
+  void give(T buffer) {
+    final int start = probeStart();
+    for (int i = 0; i < PROBES; i++) {
+      final int slot = (start + i) & mask;
+      if (slots.get(slot) == null && slots.compareAndSet(slot, null, buffer)) {
+        return;
+      }
+    }
+  }
+
+  private static int probeStart() {
+    // spreads threads over the slots; ids of virtual threads are sequential as well
+    final long id = Thread.currentThread().getId();
+    return (int) (id ^ (id >>> 16)) * 0x9E3779B9;
+  }
+}
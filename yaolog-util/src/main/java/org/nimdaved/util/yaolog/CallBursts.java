@@ -0,0 +1,198 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * Collapsing of repeated calls (N+1 loops, yaolog.method.burst.collapse). Per-thread stack of
+ * advised invocations; consecutive calls of the same method within one parent invocation form a
+ * burst. The first call of a burst is logged as usual, the repeated ones (and methods they call)
+ * are not; when the parent calls another method or returns, the burst is logged as one line:
+ * <pre>
+ * findById: Method burst: 120 calls by placeOrder, total 340 msec., max 12 msec.
+ * </pre>
+ * at the level of the first call, or WARN when it reaches yaolog.method.burst.warn calls.
+ * Exceptions of repeated calls are logged as usual. Stacks are pooled per request, see
+ * {@link BufferPool}; the stack is looked up in a thread local on call entry only, the frame
+ * carries it to the exit.
+ */
+final class CallBursts {
+
+  private static final String METHOD_BURST = ": Method burst: ";
+
+  // stack of the current request; taken from the pool by the outermost advised call
+  private static final ThreadLocal<Stack> STACKS = new ThreadLocal<>();
+  private static final BufferPool<Stack> POOL = new BufferPool<>(Stack::new);
+  private static volatile boolean enabled;
+  // 0 disables WARN
+  private static volatile int warnCalls;
+
+  /**
+   * Advised invocation and the burst of its callees
+   */
+  static final class Frame {
+    private final Stack stack;
+    private String name;
+    private boolean collapsed;
+    // current burst of the callees
+    private Method burstMethod;
+    private String burstName;
+    private Logger burstLogger;
+    private boolean burstInfo;
+    private boolean burstDebug;
+    private boolean burstBuffered;
+    private int burstCalls;
+    private long burstNanos;
+    private long burstMaxNanos;
+
+    private Frame(Stack stack) {
+      this.stack = stack;
+    }
+
+    /**
+     * @return true if the call is a repeated call of a burst, or is called by one
+     */
+    boolean isCollapsed() {
+      return collapsed;
+    }
+
+    private void startBurst(Method method, String name, Logger logger, boolean info,
+        boolean debug, boolean buffered) {
+      burstMethod = method;
+      burstName = name;
+      burstLogger = logger;
+      burstInfo = info;
+      burstDebug = debug;
+      burstBuffered = buffered;
+      burstCalls = 1;
+      burstNanos = 0;
+      burstMaxNanos = 0;
+    }
+
+    private void endBurst() {
+      if (burstMethod != null && burstCalls > 1 && !collapsed) {
+        log();
+      }
+      burstMethod = null;
+      burstName = null;
+      burstLogger = null;
+    }
+
+    private void log() {
+      String message = burstName + METHOD_BURST + burstCalls + " calls by " + name + ", total "
+          + TimeUnit.NANOSECONDS.toMillis(burstNanos) + " msec., max "
+          + TimeUnit.NANOSECONDS.toMillis(burstMaxNanos) + " msec.";
+      if (warnCalls > 0 && burstCalls >= warnCalls && LogUtil.isWarnEnabled(burstLogger)) {
+        burstLogger.warn(message);
+      } else if (burstBuffered) {
+        DebugBuffer.add(burstLogger, message);
+      } else if (burstInfo) {
+        burstLogger.info(message);
+      } else if (burstDebug) {
+        burstLogger.debug(message);
+      }
+    }
+  }
+
+  private static final class Stack {
+    private Frame[] frames = new Frame[16];
+    private int depth;
+
+    Frame push() {
+      if (depth == frames.length) {
+        frames = Arrays.copyOf(frames, depth * 2);
+      }
+      Frame frame = frames[depth];
+      if (frame == null) {
+        frame = frames[depth] = new Frame(this);
+      }
+      depth++;
+      return frame;
+    }
+
+    Frame parent() {
+      return depth < 2 ? null : frames[depth - 2];
+    }
+  }
+
+  /**
+   * Configures collapsing of repeated calls
+   * @param collapse true to collapse
+   * @param warn burst size logged at WARN, 0 to disable
+   */
+  static void configure(boolean collapse, int warn) {
+    warnCalls = Math.max(0, warn);
+    enabled = collapse;
+  }
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Registers start of advised call
+   * @param method called method
+   * @param name method name as logged
+   * @param logger logger of the method
+   * @param info true if the call is logged at INFO
+   * @param debug true if the call is logged at DEBUG
+   * @param buffered true if the call is logged to DebugBuffer
+   * @return frame of the call, to be passed to {@link #exit(Frame, long)}
+   */
+  static Frame enter(Method method, String name, Logger logger, boolean info, boolean debug,
+      boolean buffered) {
+    Stack stack = STACKS.get();
+    if (stack == null) {
+      stack = POOL.take();
+      STACKS.set(stack);
+    }
+    Frame frame = stack.push();
+    Frame parent = stack.parent();
+    frame.name = name;
+    frame.collapsed = parent != null && parent.collapsed;
+    frame.burstMethod = null;
+    if (parent != null) {
+      if (method.equals(parent.burstMethod)) {
+        parent.burstCalls++;
+        frame.collapsed = true;
+      } else {
+        parent.endBurst();
+        parent.startBurst(method, name, logger, info, debug, buffered);
+      }
+    }
+    return frame;
+  }
+
+  /**
+   * Logs burst of the callees; called when the method body completes, before its exit line
+   * @param frame frame of the call
+   */
+  static void endBurst(Frame frame) {
+    frame.endBurst();
+  }
+
+  /**
+   * Registers end of advised call
+   * @param frame frame of the call
+   * @param nanos call duration
+   */
+  static void exit(Frame frame, long nanos) {
+    Stack stack = frame.stack;
+    frame.endBurst();
+    frame.name = null;
+    Frame parent = stack.parent();
+    if (parent != null && parent.burstMethod != null) {
+      parent.burstNanos += nanos;
+      parent.burstMaxNanos = Math.max(parent.burstMaxNanos, nanos);
+    }
+    if (--stack.depth == 0) {
+      STACKS.remove();
+      POOL.give(stack);
+    }
+  }
+
+  private CallBursts() {
+  }
+}
@@ -0,0 +1,202 @@
+package org.nimdaved.util.yaolog;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * Per-thread ring of DEBUG messages of the current request (yaolog.debug.buffer). While DEBUG
+ * is disabled, LogUtil keeps entry, exit and duration lines of advised methods here instead of
+ * dropping them. The outermost advised call ends the request: the ring is discarded when the
+ * call succeeds within the slow threshold. On exception, slow call or ERROR logged by
+ * {@link DebugBufferTurboFilter}, the ring is written in order ahead of the error, as DEBUG of
+ * {@link LogElevation elevated} thread when it passes the logger level, as INFO otherwise;
+ * further messages of that request are written directly. Rings are pooled per request, see
+ * {@link BufferPool}; the ring is looked up in a thread local when advised call begins and when
+ * a message is buffered, the call carries it to the end.
+ */
+final class DebugBuffer {
+
+  private static final String BUFFERED_AT = "(buffered at ";
+  private static final String BUFFERED_AT_END = ") ";
+
+  // ring of the current request; taken from the pool by the outermost advised call
+  private static final ThreadLocal<Ring> RINGS = new ThreadLocal<>();
+  private static final BufferPool<Ring> POOL = new BufferPool<>(Ring::new);
+  // 0 disables buffering
+  private static volatile int capacity;
+  private static volatile long slowNanos = Long.MAX_VALUE;
+
+  /**
+   * Messages of one request
+   */
+  static final class Ring {
+    private Logger[] loggers = new Logger[0];
+    private String[] messages = new String[0];
+    private long[] timestamps = new long[0];
+    private int head;
+    private int size;
+    private long dropped;
+    // nesting of advised calls; request ends at 0
+    private int depth;
+    private boolean flushed;
+    private boolean flushing;
+
+    void add(Logger logger, String message, int capacity) {
+      if (loggers.length != capacity) {
+        loggers = new Logger[capacity];
+        messages = new String[capacity];
+        timestamps = new long[capacity];
+        clear();
+      }
+      int tail = (head + size) % capacity;
+      if (size == capacity) {
+        head = (head + 1) % capacity;
+        dropped++;
+      } else {
+        size++;
+      }
+      loggers[tail] = logger;
+      messages[tail] = message;
+      timestamps[tail] = System.currentTimeMillis();
+    }
+
+    void clear() {
+      for (int i = 0; i < size; i++) {
+        int slot = (head + i) % loggers.length;
+        loggers[slot] = null;
+        messages[slot] = null;
+      }
+      head = 0;
+      size = 0;
+      dropped = 0;
+    }
+  }
+
+  /**
+   * Configures buffering of advised method messages
+   * @param enabled true to buffer
+   * @param size messages kept per thread, oldest are dropped
+   * @param slowMillis call duration that flushes the buffer
+   */
+  static void configure(boolean enabled, int size, long slowMillis) {
+    slowNanos = slowMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    capacity = enabled ? Math.max(1, size) : 0;
+  }
+
+  static boolean isEnabled() {
+    return capacity > 0;
+  }
+
+  /**
+   * Marks start of advised call
+   * @return ring of the request if buffering is enabled, to be passed to {@link #end(Ring)};
+   *     null otherwise
+   */
+  static Ring begin() {
+    if (capacity == 0) {
+      return null;
+    }
+    Ring ring = RINGS.get();
+    if (ring == null) {
+      ring = POOL.take();
+      RINGS.set(ring);
+    }
+    ring.depth++;
+    return ring;
+  }
+
+  /**
+   * Marks end of advised call; discards the buffer at the end of the outermost call
+   * @param ring ring returned by begin
+   */
+  static void end(Ring ring) {
+    if (--ring.depth <= 0) {
+      ring.depth = 0;
+      ring.flushed = false;
+      ring.clear();
+      RINGS.remove();
+      POOL.give(ring);
+    }
+  }
+
+  /**
+   * Nesting of advised calls of the current thread
+   * @return 0 outside of advised calls or when buffering is disabled
+   */
+  static int depth() {
+    Ring ring = RINGS.get();
+    return ring == null ? 0 : ring.depth;
+  }
+
+  /**
+   * Buffers DEBUG message, or writes it directly once the request is flushed
+   * @param logger logger of the message
+   * @param message rendered message
+   */
+  static void add(Logger logger, String message) {
+    final int size = capacity;
+    if (size == 0) {
+      return;
+    }
+    Ring ring = RINGS.get();
+    if (ring == null) {
+      // not within advised call
+      return;
+    }
+    if (ring.flushed) {
+      write(logger, message);
+    } else {
+      ring.add(logger, message, size);
+    }
+  }
+
+  static boolean isSlow(long nanos) {
+    return nanos >= slowNanos;
+  }
+
+  /**
+   * Writes buffered messages of the current request in order
+   */
+  static void flush() {
+    if (capacity == 0) {
+      return;
+    }
+    Ring ring = RINGS.get();
+    if (ring == null || ring.flushing) {
+      return;
+    }
+    ring.flushing = true;
+    try {
+      if (ring.dropped > 0) {
+        write(ring.loggers[ring.head],
+            ring.dropped + " earlier buffered DEBUG messages of the request are dropped");
+      }
+      for (int i = 0; i < ring.size; i++) {
+        int slot = (ring.head + i) % ring.loggers.length;
+        write(ring.loggers[slot], BUFFERED_AT + Instant.ofEpochMilli(ring.timestamps[slot])
+            + BUFFERED_AT_END + ring.messages[slot]);
+      }
+      ring.clear();
+      ring.flushed = true;
+    } finally {
+      ring.flushing = false;
+    }
+  }
+
+  private static void write(Logger logger, String message) {
+    LogElevation.Scope scope = LogElevation.elevate();
+    try {
+      if (logger.isDebugEnabled()) {
+        logger.debug(message);
+      } else {
+        logger.info(message);
+      }
+    } finally {
+      scope.close();
+    }
+  }
+
+  private DebugBuffer() {
+  }
+}
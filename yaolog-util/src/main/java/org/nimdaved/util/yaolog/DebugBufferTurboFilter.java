@@ -0,0 +1,25 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+/**
+ * Logback turbo filter that writes the {@link DebugBuffer} of the current request ahead of any
+ * ERROR event, including errors logged without LogUtil
+ */
+public class DebugBufferTurboFilter extends TurboFilter {
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+      Object[] params, Throwable t) {
+    // format is null for isErrorEnabled() checks
+    if (level != null && level.toInt() >= Level.ERROR_INT && (format != null || t != null)
+        && DebugBuffer.isEnabled()) {
+      DebugBuffer.flush();
+    }
+    return FilterReply.NEUTRAL;
+  }
+}
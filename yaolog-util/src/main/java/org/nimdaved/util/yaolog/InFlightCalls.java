@@ -0,0 +1,271 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of advised method invocations in flight (yaolog.method.inflight,
+ * yaolog.method.deadline). Per method, lock free: in-flight and peak gauges, and for methods with
+ * a deadline a fixed array of slots holding thread and start time of running invocations. A
+ * daemon watchdog checks the slots every yaolog.method.deadline.check.ms and logs WARN with the
+ * live stack of every invocation running past its deadline, once per invocation, so hung calls
+ * are visible before their "Method duration" line. Invocations beyond the slots are counted, but
+ * not watched. Usage:
+ * <pre>
+ * LogUtil.info(this, InFlightCalls.report(20));
+ * </pre>
+ */
+public final class InFlightCalls {
+
+  static final long NO_DEADLINE = -1;
+
+  private static final int SLOTS = 64;
+  // gauges per target class and method, as advice settings
+  private static final Map<Class<?>, Map<Method, Gauge>> GAUGES = new ConcurrentHashMap<>(256);
+  private static final String STUCK = ": Method still running: ";
+
+  private static volatile boolean enabled;
+  private static ScheduledExecutorService watchdog;
+
+  /**
+   * Running invocation of a method with deadline
+   */
+  static final class Invocation {
+    private final Gauge gauge;
+    private final Thread thread;
+    private final long startNanos;
+    private int slot = -1;
+    private boolean reported;
+
+    private Invocation(Gauge gauge, Thread thread, long startNanos) {
+      this.gauge = gauge;
+      this.thread = thread;
+      this.startNanos = startNanos;
+    }
+  }
+
+  /**
+   * In-flight gauges of a method
+   */
+  public static final class Gauge {
+    private final String method;
+    private final String name;
+    private final Logger logger;
+    private final long deadlineNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final AtomicReferenceArray<Invocation> slots;
+    // shared by invocations which are not watched
+    private final Invocation untracked;
+
+    private Gauge(String method, String name, Logger logger, long deadlineNanos) {
+      this.method = method;
+      this.name = name;
+      this.logger = logger;
+      this.deadlineNanos = deadlineNanos;
+      this.slots = deadlineNanos > 0 ? new AtomicReferenceArray<>(SLOTS) : null;
+      this.untracked = new Invocation(this, null, 0);
+    }
+
+    /**
+     * @return target class and method name
+     */
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     * @return invocations running now
+     */
+    public int getInFlight() {
+      return inFlight.get();
+    }
+
+    /**
+     * @return max invocations running at once since start or {@link #reset()}
+     */
+    public int getPeak() {
+      return peak.get();
+    }
+
+    /**
+     * @return deadline in msec., -1 if not watched
+     */
+    public long getDeadlineMillis() {
+      return deadlineNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(deadlineNanos) : NO_DEADLINE;
+    }
+
+    @Override
+    public String toString() {
+      return method + ": inFlight=" + getInFlight() + ", peak=" + getPeak() + ", deadline="
+          + getDeadlineMillis();
+    }
+  }
+
+  /**
+   * Enables the registry and starts the watchdog when any deadline is configured
+   * @param registry true to track invocations in flight
+   * @param checkMillis watchdog period, msec., or 0 for no watchdog
+   */
+  static synchronized void configure(boolean registry, long checkMillis) {
+    enabled = registry;
+    if (watchdog != null) {
+      watchdog.shutdownNow();
+      watchdog = null;
+    }
+    if (registry && checkMillis > 0) {
+      watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "yaolog-watchdog");
+        thread.setDaemon(true);
+        return thread;
+      });
+      watchdog.scheduleWithFixedDelay(InFlightCalls::check, checkMillis, checkMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Registers start of advised invocation
+   * @param targetClass class of the target object
+   * @param method advised method
+   * @param name method name as logged
+   * @param logger logger of the method
+   * @param deadlineNanos deadline of the method or NO_DEADLINE
+   * @return invocation to be passed to {@link #exit(Invocation)}
+   */
+  static Invocation enter(Class<?> targetClass, Method method, String name, Logger logger,
+      long deadlineNanos) {
+    Map<Method, Gauge> methods = GAUGES.get(targetClass);
+    if (methods == null) {
+      methods = GAUGES.computeIfAbsent(targetClass, c -> new ConcurrentHashMap<>());
+    }
+    Gauge gauge = methods.get(method);
+    if (gauge == null) {
+      gauge = methods.computeIfAbsent(method, m -> new Gauge(
+          targetClass.getName() + '.' + m.getName(), name, logger, deadlineNanos));
+    }
+    int running = gauge.inFlight.incrementAndGet();
+    int peak = gauge.peak.get();
+    while (running > peak && !gauge.peak.compareAndSet(peak, running)) {
+      peak = gauge.peak.get();
+    }
+    if (gauge.slots == null) {
+      return gauge.untracked;
+    }
+    Thread thread = Thread.currentThread();
+    Invocation invocation = new Invocation(gauge, thread, System.nanoTime());
+    int start = (int) thread.getId() & (SLOTS - 1);
+    for (int i = 0; i < SLOTS; i++) {
+      int slot = (start + i) & (SLOTS - 1);
+      if (gauge.slots.get(slot) == null && gauge.slots.compareAndSet(slot, null, invocation)) {
+        invocation.slot = slot;
+        break;
+      }
+    }
+    return invocation;
+  }
+
+  /**
+   * Registers end of advised invocation
+   * @param invocation invocation returned by enter
+   */
+  static void exit(Invocation invocation) {
+    if (invocation.slot >= 0) {
+      invocation.gauge.slots.set(invocation.slot, null);
+    }
+    invocation.gauge.inFlight.decrementAndGet();
+  }
+
+  /**
+   * Logs invocations running past their deadline. Failure to report one invocation is logged and
+   * the check goes on: an exception would cancel the scheduled watchdog silently
+   */
+  static void check() {
+    long now = System.nanoTime();
+    for (Map<Method, Gauge> methods : GAUGES.values()) {
+      for (Gauge gauge : methods.values()) {
+        if (gauge.slots == null) {
+          continue;
+        }
+        for (int i = 0; i < SLOTS; i++) {
+          Invocation invocation = gauge.slots.get(i);
+          if (invocation != null && !invocation.reported
+              && now - invocation.startNanos > gauge.deadlineNanos) {
+            invocation.reported = true;
+            try {
+              report(invocation, now);
+            } catch (RuntimeException e) {
+              LoggerFactory.getLogger(InFlightCalls.class)
+                  .warn("Could not report invocation of " + gauge.name + " past deadline", e);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static void report(Invocation invocation, long now) {
+    Gauge gauge = invocation.gauge;
+    StringBuilder sb = new StringBuilder(gauge.name).append(STUCK)
+        .append(TimeUnit.NANOSECONDS.toMillis(now - invocation.startNanos))
+        .append(" msec., deadline ").append(gauge.getDeadlineMillis()).append(" msec., in flight ")
+        .append(gauge.getInFlight()).append(", thread ").append(invocation.thread.getName())
+        .append(" (").append(invocation.thread.getState()).append(')');
+    for (StackTraceElement frame : invocation.thread.getStackTrace()) {
+      sb.append(System.lineSeparator()).append("\tat ").append(frame);
+    }
+    gauge.logger.warn(StringReplacer.replaceNewLine(sb.toString()));
+  }
+
+  /**
+   * Gauges of advised methods invoked since start
+   * @return gauges
+   */
+  public static List<Gauge> getGauges() {
+    return GAUGES.values().stream().flatMap(m -> m.values().stream())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * One line report of methods with most invocations in flight, a method per line marker
+   * @param top number of methods to report
+   * @return report without new line characters
+   */
+  public static String report(int top) {
+    List<Gauge> gauges = getGauges();
+    gauges.sort(Comparator.comparingInt(Gauge::getInFlight).thenComparingInt(Gauge::getPeak)
+        .reversed().thenComparing(Gauge::getMethod));
+    StringBuilder sb = new StringBuilder("Invocations in flight:");
+    gauges.stream().limit(top)
+        .forEach(g -> sb.append(System.lineSeparator()).append(g));
+    return StringReplacer.replaceNewLine(sb.toString());
+  }
+
+  /**
+   * Resets peaks to invocations in flight now; gauges are kept, as running invocations still
+   * exit through them
+   */
+  public static void reset() {
+    for (Map<Method, Gauge> methods : GAUGES.values()) {
+      methods.values().forEach(g -> g.peak.set(g.getInFlight()));
+    }
+  }
+
+  private InFlightCalls() {
+  }
+}
@@ -0,0 +1,43 @@
+package org.nimdaved.util.yaolog;
+
+/**
+ * Keeps JFR types out of LogUtil signatures, so jdk.jfr module is only needed when JFR mode is on
+ */
+final class JfrRecorder {
+
+  /**
+   * Starts invocation event
+   * @return started event
+   */
+  static Object begin() {
+    MethodInvocationEvent event = new MethodInvocationEvent();
+    event.startNanos = System.nanoTime();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends invocation event and commits it if it is enabled in the running recording and lasted
+   * at least thresholdNanos
+   * @param started event returned by {@link #begin()}
+   * @param declaringClass class declaring the method
+   * @param method method name
+   * @param thrown exception thrown by the method, or null
+   * @param thresholdNanos min duration of committed events
+   */
+  static void commit(Object started, Class<?> declaringClass, String method, Throwable thrown,
+      long thresholdNanos) {
+    MethodInvocationEvent event = (MethodInvocationEvent) started;
+    event.end();
+    if (System.nanoTime() - event.startNanos >= thresholdNanos && event.shouldCommit()) {
+      event.method = method;
+      event.declaringClass = declaringClass;
+      event.outcome = thrown == null ? MethodInvocationEvent.RETURNED : MethodInvocationEvent.THREW;
+      event.exceptionClass = thrown == null ? null : thrown.getClass();
+      event.commit();
+    }
+  }
+
+  private JfrRecorder() {
+  }
+}
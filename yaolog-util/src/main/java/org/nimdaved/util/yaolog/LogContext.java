@@ -0,0 +1,310 @@
+package org.nimdaved.util.yaolog;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread correlation fields (request id, tenant, user...), a cheaper alternative to MDC.
+ * Context is an immutable array of fixed slots, one per {@link Key}; it is copied when a field
+ * is set, not per logging event or hand-off to another thread. Rendered by
+ * {@link LogContextConverter} (%yctx, %yctx{requestId}); yaolog-config BatchingFileAppender keeps
+ * the context of the logging thread with the event, see {@link LogContextEvent}. Usage:
+ * <pre>
+ * try (LogContext.Scope scope = LogContext.open(requestId, tenant, user)) {
+ *   service.process(request);
+ * }
+ * </pre>
+ * Context follows executor and CompletableFuture hand-offs only through the wrap methods.
+ */
+public final class LogContext {
+
+  private static final int MAX_KEYS = 16;
+  private static final Key[] KEYS = new Key[MAX_KEYS];
+  private static final Map<String, Key> KEYS_BY_NAME = new ConcurrentHashMap<>();
+  private static int keyCount;
+
+  public static final Key REQUEST_ID = Key.of("requestId");
+  public static final Key TENANT = Key.of("tenant");
+  public static final Key USER = Key.of("user");
+
+  private static final LogContext EMPTY = new LogContext(new String[0]);
+  private static final ThreadLocal<LogContext> CURRENT = new ThreadLocal<>();
+  // number of open scopes in all threads; spares thread local lookup while nobody has context
+  private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+  private final String[] values;
+  // rendered once per context, not per event
+  private String text;
+
+  /**
+   * Name of a context field and its slot
+   */
+  public static final class Key {
+    private final String name;
+    private final int slot;
+
+    private Key(String name, int slot) {
+      this.name = name;
+      this.slot = slot;
+    }
+
+    /**
+     * Key of the field, registered on first use; at most 16 keys
+     * @param name field name
+     * @return key
+     */
+    public static Key of(String name) {
+      Key key = KEYS_BY_NAME.get(name);
+      if (key != null) {
+        return key;
+      }
+      synchronized (KEYS) {
+        key = KEYS_BY_NAME.get(name);
+        if (key == null) {
+          if (keyCount == MAX_KEYS) {
+            throw new IllegalStateException("Too many LogContext keys, max " + MAX_KEYS);
+          }
+          key = new Key(name, keyCount);
+          KEYS[keyCount++] = key;
+          KEYS_BY_NAME.put(name, key);
+        }
+        return key;
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * Context scope; restores previous context of the thread on close
+   */
+  public static final class Scope implements AutoCloseable {
+    private final LogContext previous;
+    private boolean closed;
+
+    private Scope(LogContext previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        if (previous == null) {
+          CURRENT.remove();
+        } else {
+          CURRENT.set(previous);
+        }
+        ACTIVE.decrementAndGet();
+      }
+    }
+  }
+
+  private LogContext(String[] values) {
+    this.values = values;
+  }
+
+  /**
+   * Context of the current thread
+   * @return context, empty if none
+   */
+  public static LogContext current() {
+    if (ACTIVE.get() == 0) {
+      return EMPTY;
+    }
+    LogContext context = CURRENT.get();
+    return context == null ? EMPTY : context;
+  }
+
+  /**
+   * Sets request id, tenant and user of the current thread until the scope is closed; null
+   * values are not set
+   * @param requestId request id
+   * @param tenant tenant
+   * @param user user
+   * @return scope to be closed by the same thread
+   */
+  public static Scope open(String requestId, String tenant, String user) {
+    return attach(current().with(REQUEST_ID, requestId).with(TENANT, tenant).with(USER, user));
+  }
+
+  /**
+   * Sets the field of the current thread until the scope is closed
+   * @param key field key
+   * @param value field value, null clears the field
+   * @return scope to be closed by the same thread
+   */
+  public static Scope put(Key key, String value) {
+    return attach(current().with(key, value));
+  }
+
+  /**
+   * Sets context of the current thread until the scope is closed, e.g. context captured by
+   * another thread
+   * @param context context
+   * @return scope to be closed by the same thread
+   */
+  public static Scope attach(LogContext context) {
+    Scope scope = new Scope(CURRENT.get());
+    CURRENT.set(context);
+    ACTIVE.incrementAndGet();
+    return scope;
+  }
+
+  /**
+   * Copy of this context with the field
+   * @param key field key
+   * @param value field value, null clears the field
+   * @return context
+   */
+  public LogContext with(Key key, String value) {
+    if (value == null && key.slot >= values.length) {
+      return this;
+    }
+    String[] copy = Arrays.copyOf(values, Math.max(values.length, key.slot + 1));
+    // no line breaks in log lines
+    copy[key.slot] = value == null ? null : StringReplacer.replaceNewLine(value);
+    return new LogContext(copy);
+  }
+
+  /**
+   * @param key field key
+   * @return field value or null
+   */
+  public String get(Key key) {
+    return key.slot < values.length ? values[key.slot] : null;
+  }
+
+  public boolean isEmpty() {
+    return toString().isEmpty();
+  }
+
+  /**
+   * @return fields as "requestId=r1 tenant=t1", empty string if none
+   */
+  @Override
+  public String toString() {
+    String rendered = text;
+    if (rendered == null) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null) {
+          if (sb.length() > 0) {
+            sb.append(' ');
+          }
+          sb.append(KEYS[i].name).append('=').append(values[i]);
+        }
+      }
+      text = rendered = sb.toString();
+    }
+    return rendered;
+  }
+
+  /**
+   * Propagates context of the current thread to the task
+   * @param task task to be run by another thread
+   * @return task with context, or the task itself if current thread has no context
+   */
+  public static Runnable wrap(Runnable task) {
+    LogContext context = current();
+    if (context == EMPTY) {
+      return task;
+    }
+    return () -> {
+      Scope scope = attach(context);
+      try {
+        task.run();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates context of the current thread to the task
+   * @param task task to be run by another thread
+   * @return task with context, or the task itself if current thread has no context
+   * @param <V> result type
+   */
+  public static <V> Callable<V> wrap(Callable<V> task) {
+    LogContext context = current();
+    if (context == EMPTY) {
+      return task;
+    }
+    return () -> {
+      Scope scope = attach(context);
+      try {
+        return task.call();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates context of the current thread to the supplier, e.g. for
+   * CompletableFuture.supplyAsync(..)
+   * @param supplier supplier to be run by another thread
+   * @return supplier with context, or the supplier itself if current thread has no context
+   * @param <V> result type
+   */
+  public static <V> Supplier<V> wrapSupplier(Supplier<V> supplier) {
+    LogContext context = current();
+    if (context == EMPTY) {
+      return supplier;
+    }
+    return () -> {
+      Scope scope = attach(context);
+      try {
+        return supplier.get();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates context of the current thread to the function, e.g. for
+   * CompletableFuture.thenApplyAsync(..)
+   * @param function function to be run by another thread
+   * @return function with context, or the function itself if current thread has no context
+   * @param <T> argument type
+   * @param <R> result type
+   */
+  public static <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+    LogContext context = current();
+    if (context == EMPTY) {
+      return function;
+    }
+    return t -> {
+      Scope scope = attach(context);
+      try {
+        return function.apply(t);
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Executor that propagates context of the submitting thread to its tasks
+   * @param executor delegate executor
+   * @return propagating executor
+   */
+  public static Executor executor(Executor executor) {
+    return task -> executor.execute(wrap(task));
+  }
+}
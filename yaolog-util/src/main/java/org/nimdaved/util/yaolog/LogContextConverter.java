@@ -0,0 +1,39 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Logback converter of {@link LogContext} fields: %yctx renders all fields as
+ * "requestId=r1 tenant=t1", %yctx{requestId} the value of one field; empty when not set.
+ * Registered by org/nimdaved/util/yaolog/logback/yaolog-util.xml, included by yaolog-config; in
+ * own Logback configuration:
+ * <pre>
+ * &lt;conversionRule conversionWord="yctx"
+ *   converterClass="org.nimdaved.util.yaolog.LogContextConverter" /&gt;
+ * </pre>
+ */
+public class LogContextConverter extends ClassicConverter {
+
+  private LogContext.Key key;
+
+  @Override
+  public void start() {
+    String option = getFirstOption();
+    if (option != null && !option.trim().isEmpty()) {
+      key = LogContext.Key.of(option.trim());
+    }
+    super.start();
+  }
+
+  @Override
+  public String convert(ILoggingEvent event) {
+    LogContext context = event instanceof LogContextEvent
+        ? ((LogContextEvent) event).getLogContext() : LogContext.current();
+    if (key == null) {
+      return context.toString();
+    }
+    String value = context.get(key);
+    return value == null ? "" : value;
+  }
+}
@@ -0,0 +1,149 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+
+/**
+ * Logback event with {@link LogContext} of the logging thread, for appenders that render events
+ * in another thread. yaolog-config BatchingFileAppender applies {@link Capture} to the events it
+ * queues when yaolog-util is on the class path; {@link LogContextConverter} reads the captured
+ * context instead of the context of the rendering thread
+ */
+public final class LogContextEvent implements ILoggingEvent {
+
+  private final ILoggingEvent event;
+  private final LogContext context;
+
+  /**
+   * Captures context of the current thread; events of threads without context are not wrapped
+   */
+  public static final class Capture implements UnaryOperator<ILoggingEvent> {
+    @Override
+    public ILoggingEvent apply(ILoggingEvent event) {
+      LogContext context = LogContext.current();
+      return context.isEmpty() || event instanceof LogContextEvent ? event
+          : new LogContextEvent(event, context);
+    }
+  }
+
+  private LogContextEvent(ILoggingEvent event, LogContext context) {
+    this.event = event;
+    this.context = context;
+  }
+
+  /**
+   * @return context of the logging thread
+   */
+  public LogContext getLogContext() {
+    return context;
+  }
+
+  @Override
+  public String getThreadName() {
+    return event.getThreadName();
+  }
+
+  @Override
+  public Level getLevel() {
+    return event.getLevel();
+  }
+
+  @Override
+  public String getMessage() {
+    return event.getMessage();
+  }
+
+  @Override
+  public Object[] getArgumentArray() {
+    return event.getArgumentArray();
+  }
+
+  @Override
+  public String getFormattedMessage() {
+    return event.getFormattedMessage();
+  }
+
+  @Override
+  public String getLoggerName() {
+    return event.getLoggerName();
+  }
+
+  @Override
+  public LoggerContextVO getLoggerContextVO() {
+    return event.getLoggerContextVO();
+  }
+
+  @Override
+  public IThrowableProxy getThrowableProxy() {
+    return event.getThrowableProxy();
+  }
+
+  @Override
+  public StackTraceElement[] getCallerData() {
+    return event.getCallerData();
+  }
+
+  @Override
+  public boolean hasCallerData() {
+    return event.hasCallerData();
+  }
+
+  @Override
+  public List<Marker> getMarkerList() {
+    return event.getMarkerList();
+  }
+
+  @Override
+  public Map<String, String> getMDCPropertyMap() {
+    return event.getMDCPropertyMap();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public Map<String, String> getMdc() {
+    return event.getMdc();
+  }
+
+  @Override
+  public long getTimeStamp() {
+    return event.getTimeStamp();
+  }
+
+  @Override
+  public int getNanoseconds() {
+    return event.getNanoseconds();
+  }
+
+  @Override
+  public Instant getInstant() {
+    return event.getInstant();
+  }
+
+  @Override
+  public long getSequenceNumber() {
+    return event.getSequenceNumber();
+  }
+
+  @Override
+  public List<KeyValuePair> getKeyValuePairs() {
+    return event.getKeyValuePairs();
+  }
+
+  @Override
+  public void prepareForDeferredProcessing() {
+    event.prepareForDeferredProcessing();
+  }
+
+  @Override
+  public String toString() {
+    return event.toString();
+  }
+}
@@ -0,0 +1,163 @@
+package org.nimdaved.util.yaolog;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Per-request DEBUG elevation without changing global log levels. Elevated thread passes
+ * {@link LogUtil#isDebugEnabled} and appLogLevel checks; with logback, add
+ * {@link LogElevationTurboFilter} to let the DEBUG events through the logger levels. Usage:
+ * <pre>
+ * try (LogElevation.Scope scope = LogElevation.elevate()) {
+ *   service.process(request);
+ * }
+ * </pre>
+ * Elevation follows executor and CompletableFuture hand-offs only through the wrap methods.
+ */
+public final class LogElevation {
+
+  private static final ThreadLocal<Boolean> ELEVATED = new ThreadLocal<>();
+  // number of open scopes in all threads; spares thread local lookup while nobody is elevated
+  private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+  /**
+   * Elevation scope; restores previous state of the thread on close
+   */
+  public static final class Scope implements AutoCloseable {
+    private final Boolean previous;
+    private boolean closed;
+
+    private Scope(Boolean previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        if (previous == null) {
+          ELEVATED.remove();
+        } else {
+          ELEVATED.set(previous);
+        }
+        ACTIVE.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Elevates current thread to DEBUG until the scope is closed
+   * @return scope to be closed by the same thread
+   */
+  public static Scope elevate() {
+    Scope scope = new Scope(ELEVATED.get());
+    ELEVATED.set(Boolean.TRUE);
+    ACTIVE.incrementAndGet();
+    return scope;
+  }
+
+  /**
+   * Checks whether current thread is elevated
+   * @return true if elevated
+   */
+  public static boolean isElevated() {
+    return ACTIVE.get() != 0 && ELEVATED.get() == Boolean.TRUE;
+  }
+
+  /**
+   * Propagates elevation of the current thread to the task
+   * @param task task to be run by another thread
+   * @return elevated task, or the task itself if current thread is not elevated
+   */
+  public static Runnable wrap(Runnable task) {
+    if (!isElevated()) {
+      return task;
+    }
+    return () -> {
+      Scope scope = elevate();
+      try {
+        task.run();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates elevation of the current thread to the task
+   * @param task task to be run by another thread
+   * @return elevated task, or the task itself if current thread is not elevated
+   * @param <V> result type
+   */
+  public static <V> Callable<V> wrap(Callable<V> task) {
+    if (!isElevated()) {
+      return task;
+    }
+    return () -> {
+      Scope scope = elevate();
+      try {
+        return task.call();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates elevation of the current thread to the supplier, e.g. for
+   * CompletableFuture.supplyAsync(..)
+   * @param supplier supplier to be run by another thread
+   * @return elevated supplier, or the supplier itself if current thread is not elevated
+   * @param <V> result type
+   */
+  public static <V> Supplier<V> wrapSupplier(Supplier<V> supplier) {
+    if (!isElevated()) {
+      return supplier;
+    }
+    return () -> {
+      Scope scope = elevate();
+      try {
+        return supplier.get();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Propagates elevation of the current thread to the function, e.g. for
+   * CompletableFuture.thenApplyAsync(..)
+   * @param function function to be run by another thread
+   * @return elevated function, or the function itself if current thread is not elevated
+   * @param <T> argument type
+   * @param <R> result type
+   */
+  public static <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+    if (!isElevated()) {
+      return function;
+    }
+    return t -> {
+      Scope scope = elevate();
+      try {
+        return function.apply(t);
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Executor that propagates elevation of the submitting thread to its tasks
+   * @param executor delegate executor
+   * @return propagating executor
+   */
+  public static Executor executor(Executor executor) {
+    return task -> executor.execute(wrap(task));
+  }
+
+  private LogElevation() {
+  }
+}
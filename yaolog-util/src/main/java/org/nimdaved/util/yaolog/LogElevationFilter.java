@@ -0,0 +1,63 @@
+package org.nimdaved.util.yaolog;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Elevates requests carrying the debug header to DEBUG logging, see {@link LogElevation}.
+ * Not a component by design; register it as a bean where per-request debugging is wanted.
+ * The header value must match yaolog.elevation.token; without the token the filter is disabled,
+ * so outside clients cannot turn DEBUG on
+ */
+public class LogElevationFilter extends OncePerRequestFilter {
+
+  private @Value("${yaolog.elevation.header:X-Yaolog-Debug}") String header = "X-Yaolog-Debug";
+  private @Value("${yaolog.elevation.token:}") String token = "";
+
+  @Override
+  protected void initFilterBean() throws ServletException {
+    if (StringUtils.isBlank(token)) {
+      logger.warn("yaolog.elevation.token is not set, " + header + " header is ignored");
+    }
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    if (isElevationRequested(request.getHeader(header))) {
+      LogElevation.Scope scope = LogElevation.elevate();
+      try {
+        filterChain.doFilter(request, response);
+      } finally {
+        scope.close();
+      }
+    } else {
+      filterChain.doFilter(request, response);
+    }
+  }
+
+  boolean isElevationRequested(String value) {
+    if (value == null || StringUtils.isBlank(token)) {
+      return false;
+    }
+    return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+        value.trim().getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void setHeader(String header) {
+    this.header = header;
+  }
+
+  public void setToken(String token) {
+    this.token = token;
+  }
+}
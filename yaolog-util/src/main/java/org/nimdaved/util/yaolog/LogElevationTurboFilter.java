@@ -0,0 +1,37 @@
+package org.nimdaved.util.yaolog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+/**
+ * Logback turbo filter that lets DEBUG events of {@link LogElevation elevated} threads pass
+ * logger levels. Other levels are left to logger levels and following turbo filters, so loggers
+ * set to OFF or WARN stay quiet. Optional prefix limits elevation to application loggers, e.g.
+ * root_logger
+ */
+public class LogElevationTurboFilter extends TurboFilter {
+
+  private String prefix = "";
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+      Object[] params, Throwable t) {
+    return level == Level.DEBUG && LogElevation.isElevated()
+        && logger.getName().startsWith(prefix) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Logger name prefix to be elevated; all loggers by default
+   * @param prefix logger name prefix
+   */
+  public void setPrefix(String prefix) {
+    this.prefix = prefix == null ? "" : prefix.trim();
+  }
+}
@@ -0,0 +1,20 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Masks field of {@link Loggable} DTO with {@link StringReplacer#obfuscate(String, int)}; values
+ * up to 12 characters are masked in full, longer values show at most a quarter at each end
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface LogMask {
+  /**
+   * Number of characters in the value's beginning and end to be shown, none by default
+   * @return characters to show
+   */
+  int charsToShow() default 0;
+}
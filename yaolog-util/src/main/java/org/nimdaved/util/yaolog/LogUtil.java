@@ -10,6 +10,8 @@ import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
 import org.springframework.aop.framework.Advised;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,10 +26,10 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 
 /**
@@ -85,16 +87,60 @@ public class LogUtil {
   private @Value("${yaolog.exception.log.stacktrace.hide:}") Set<String> exceptionLogStacktraceHide =
       Collections.emptySet();
   private Set<Class<?>> exceptionLogStacktraceHideClasses = Collections.emptySet();
+  // Logs stack trace of exception propagating through nested advised methods (or wrapped by
+  // errorWrapThrow) only once; outer frames log one line digest
+  private @Value("${yaolog.exception.log.once: true}") boolean exceptionLogOnce = true;
+  // Masks card numbers, SSNs, bearer tokens and values of keywords in logged messages
+  private @Value("${yaolog.pii.scan: false}") boolean piiScan;
+  // Keywords whose values are masked in addition to password, secret, token, api_key, etc.
+  private @Value("${yaolog.pii.keywords:}") Set<String> piiKeywords = Collections.emptySet();
   // Switches logging of method durations
   private @Value("${yaolog.method.duration.log: true}") boolean logMethodDuration = true;
+  // Measures bytes allocated by the thread during method execution; logged next to method
+  // duration and aggregated per method in AllocationStats
+  private @Value("${yaolog.method.allocation.log: false}") boolean logMethodAllocation;
+  // Keeps DEBUG method lines of the current request in a per-thread ring while DEBUG is disabled;
+  // written ahead of the error when the request fails or is slow, discarded otherwise
+  private @Value("${yaolog.debug.buffer: false}") boolean debugBuffer;
+  // Number of buffered lines per thread; oldest are dropped
+  private @Value("${yaolog.debug.buffer.size: 256}") int debugBufferSize = 256;
+  // Call duration in msec. that writes the buffered lines
+  private @Value("${yaolog.debug.buffer.slow.ms: 1000}") long debugBufferSlowMillis = 1000;
+  // Collapses consecutive calls of the same advised method within one parent invocation (N+1
+  // loops) into one "Method burst" line
+  private @Value("${yaolog.method.burst.collapse: false}") boolean burstCollapse;
+  // Number of calls in a burst that is logged at WARN; 0 disables
+  private @Value("${yaolog.method.burst.warn: 50}") int burstWarn = 50;
   // Reduces log verbosity by logging only first X number of collection
   private @Value("${yaolog.collection.log.limit: 10}") int COLLECTION_LOG_LIMIT = 10;
+  // Limits rendering depth of nested collections, maps, arrays in parameters and return values
+  private @Value("${yaolog.render.depth.max: 3}") int renderDepthMax = 3;
+  // Truncates toString() of parameters and return values without renderer
+  private @Value("${yaolog.render.tostring.max: 1000}") int renderToStringMax = 1000;
   // Enables auto logging at INFO level for all input classes (endpoints) having class name
   // XyController
   private @Value("${yaolog.method.info.controller: true}") boolean infoController = true;
   // Enables auto logging at INFO level for all output classes (clients) having class name XyClient
   private @Value("${yaolog.method.info.client: true}") boolean infoClient;
   private @Value("${spring.profiles.active:UNSET}") String cloudEnv;
+  // JFR mode: commits MethodInvocationEvent instead of duration log lines for listed methods.
+  // Entries: com.acme.FooService.find:20 (method), com.acme.FooService (class), *:5 (all);
+  // optional number is min duration in msec.
+  private @Value("${yaolog.method.jfr:}") Set<String> jfrMethods = Collections.emptySet();
+  private Map<String, Long> jfrThresholds = Collections.emptyMap();
+  // Registers advised invocations in flight; per-method gauges in InFlightCalls
+  private @Value("${yaolog.method.inflight: false}") boolean inFlight;
+  // Stuck-call watchdog: logs WARN with the live stack of invocations running past the deadline.
+  // Entries: com.acme.FooClient.call:5000 (method), com.acme.FooClient:10000 (class),
+  // *:30000 (all); number is deadline in msec. Implies yaolog.method.inflight
+  private @Value("${yaolog.method.deadline:}") Set<String> deadlineMethods =
+      Collections.emptySet();
+  private Map<String, Long> deadlines = Collections.emptyMap();
+  // Period of the watchdog deadline checks, msec.
+  private @Value("${yaolog.method.deadline.check.ms: 1000}") long deadlineCheckMillis = 1000;
+  // @LogInfo and @HideLogElements settings per target class and method; see AdviceIndex
+  private final Map<Class<?>, Map<Method, AdviceSettings>> adviceSettings =
+      new ConcurrentHashMap<>(256);
 
   /**
    * Gets logger from the memory cache or LogFactory. It is usefull if Logger is not defined in the clazz
@@ -178,12 +224,25 @@ public class LogUtil {
   }
 
   /**
-   * Checks if application log enablement is more restrictive than logger enablement
+   * Checks if application log enablement is more restrictive than logger enablement.
+   * Threads elevated by {@link LogElevation} are always enabled
    * @param request logging level
    * @return true if application log enablement is more restrictive than logger enablement
    */
   public static boolean isAppLogEnabled(Level request) {
-    return appLogLevel.toInt() <= request.toInt();
+    return appLogLevel.toInt() <= request.toInt() || LogElevation.isElevated();
+  }
+
+  /**
+   * Sets {@link LogContext} fields of the current thread, rendered by %yctx in every log line
+   * until the scope is closed; null values are not set
+   * @param requestId request id
+   * @param tenant tenant
+   * @param user user
+   * @return scope to be closed by the same thread
+   */
+  public static LogContext.Scope context(String requestId, String tenant, String user) {
+    return LogContext.open(requestId, tenant, user);
   }
 
   /**
@@ -201,6 +260,18 @@ public class LogUtil {
     }
   }
 
+  /**
+   * Emits info or debug log message, or keeps it in DebugBuffer
+   */
+  private static void infoOrDebug(Logger logger, boolean info, boolean debug, boolean buffered,
+      String message) {
+    if (buffered) {
+      DebugBuffer.add(logger, message);
+    } else {
+      infoOrDebug(logger, info, debug, message);
+    }
+  }
+
   /**
    * Constructs duration message when startTime is known.
    * @param methodName name of the method
@@ -218,6 +289,19 @@ public class LogUtil {
     return sb.toString();
   }
 
+  /**
+   * Constructs duration message with bytes allocated during method execution
+   * @param methodName name of the method
+   * @param startTime previously measured method start time
+   * @param allocatedBytes bytes allocated by the thread, negative if not measured
+   * @return "Stopwatch" string representation
+   */
+  public static String methodDurationMessage(String methodName, Instant startTime,
+      long allocatedBytes) {
+    String message = methodDurationMessage(methodName, startTime);
+    return allocatedBytes < 0 ? message : message + " Allocated: " + allocatedBytes + " bytes.";
+  }
+
   /**
    * Null-safe logger retrival
    * @param any object that requires logging
@@ -238,7 +322,10 @@ public class LogUtil {
   public static <T> void debug(T any, String msg, Object... args) {
     Logger logger = log(any);
     if (isDebugEnabled(log(any))) {
-      if (args == null) {
+      if (PiiScanner.isEnabled()) {
+        FormattingTuple masked = formatMasked(msg, args);
+        logger.debug(masked.getMessage(), masked.getThrowable());
+      } else if (args == null) {
         logger.debug(msg);
       } else if (args.length == 1) {
         logger.debug(msg, args[0]);
@@ -260,7 +347,10 @@ public class LogUtil {
   public static <T> void info(T any, String msg, Object... args) {
     Logger logger = log(any);
     if (isInfoEnabled(log(any))) {
-      if (args == null) {
+      if (PiiScanner.isEnabled()) {
+        FormattingTuple masked = formatMasked(msg, args);
+        logger.info(masked.getMessage(), masked.getThrowable());
+      } else if (args == null) {
         logger.info(msg);
       } else if (args.length == 1) {
         logger.info(msg, args[0]);
@@ -282,7 +372,10 @@ public class LogUtil {
   public static <T> void warn(T any, String msg, Object... args) {
     Logger logger = log(any);
     if (isWarnEnabled(log(any))) {
-      if (args == null) {
+      if (PiiScanner.isEnabled()) {
+        FormattingTuple masked = formatMasked(msg, args);
+        logger.warn(masked.getMessage(), masked.getThrowable());
+      } else if (args == null) {
         logger.warn(msg);
       } else if (args.length == 1) {
         logger.warn(msg, args[0]);
@@ -304,7 +397,10 @@ public class LogUtil {
   public static <T> void error(T any, String msg, Object... args) {
     Logger logger = log(any);
     if (isErrorEnabled(log(any))) {
-      if (args == null) {
+      if (PiiScanner.isEnabled()) {
+        FormattingTuple masked = formatMasked(msg, args);
+        logger.error(masked.getMessage(), masked.getThrowable());
+      } else if (args == null) {
         logger.error(msg);
       } else if (args.length == 1) {
         logger.error(msg, args[0]);
@@ -325,8 +421,8 @@ public class LogUtil {
    */
   public static <T> void logMethodEntry(T any, String methodName, Object... parameters) {
     if (isDebugEnabled(log(any))) {
-      log(any).debug(
-          getLogName(log(any)) + METHOD_ENTRY + methodWithParameters(methodName, parameters));
+      log(any).debug(maskPii(
+          getLogName(log(any)) + METHOD_ENTRY + methodWithParameters(methodName, parameters)));
     }
   }
 
@@ -350,8 +446,8 @@ public class LogUtil {
    */
   public static <T> void logMethodExit(T any, String methodName, Object... retVal) {
     if (isDebugEnabled(log(any))) {
-      log(any)
-          .debug(getLogName(log(any)) + METHOD_EXIT + methodWithReturnValue(methodName, retVal));
+      log(any).debug(
+          maskPii(getLogName(log(any)) + METHOD_EXIT + methodWithReturnValue(methodName, retVal)));
     }
   }
 
@@ -378,11 +474,15 @@ public class LogUtil {
    */
   public static <T> String errorMethodException(T any, Throwable e, String methodName,
       Object... parameters) {
-    String msg = methodWithException(methodName, e, parameters);
-
-    log(any).error(StringReplacer.throwableMessage(getLogName(log(any)), e));
-
-    return msg;
+    DebugBuffer.flush();
+    Throwable logged = LoggedThrowables.logOnce(e);
+    log(any).error(maskPii(logged == null
+        ? StringReplacer.throwableMessage(getLogName(log(any)), e)
+        : getLogName(log(any)) + LoggedThrowables.digest(methodName, e, logged)));
+
+    // parameters are rendered once, by the frame that logged the stack trace
+    return logged == null ? methodWithException(methodName, e, parameters)
+        : methodWithException(methodName, e);
   }
 
   /**
@@ -432,6 +532,16 @@ public class LogUtil {
     }
   }
 
+  private static String maskPii(String message) {
+    return PiiScanner.isEnabled() ? PiiScanner.mask(message) : message;
+  }
+
+  private static FormattingTuple formatMasked(String msg, Object[] args) {
+    FormattingTuple formatted = MessageFormatter.arrayFormat(msg, args);
+    return new FormattingTuple(PiiScanner.mask(formatted.getMessage()), null,
+        formatted.getThrowable());
+  }
+
   private static String getLogName(Logger log) {
     return log.getName() + SPACE;
   }
@@ -447,12 +557,16 @@ public class LogUtil {
    */
   public static <T> String logMethodException(T any, Throwable e, String methodName,
       Object... parameters) {
-    String msg = methodWithException(methodName, e, parameters);
+    Throwable logged = null;
     if (isDebugEnabled(log(any))) {
-      log(any).debug(StringReplacer.throwableMessage(getLogName(log(any)), e));
+      logged = LoggedThrowables.logOnce(e);
+      log(any).debug(maskPii(logged == null
+          ? StringReplacer.throwableMessage(getLogName(log(any)), e)
+          : getLogName(log(any)) + LoggedThrowables.digest(methodName, e, logged)));
     }
 
-    return msg;
+    return logged == null ? methodWithException(methodName, e, parameters)
+        : methodWithException(methodName, e);
   }
 
   /**
@@ -520,7 +634,7 @@ public class LogUtil {
    */
   public static String getMethodParamString(Object[] parameters) {
     return new StringBuffer(METHOD_ENTRY).append(HIPHEN).append(PARAMS).append(SPACE)
-        .append(Arrays.deepToString(parameters)).toString();
+        .append(ArgumentRenderers.renderAll(parameters)).toString();
   }
 
   /**
@@ -530,7 +644,7 @@ public class LogUtil {
    */
   public static String getMethodReturnString(Object... retVal) {
     return new StringBuffer(METHOD_EXIT).append(HIPHEN).append(PARAMS).append(SPACE)
-        .append(Arrays.deepToString(retVal)).toString();
+        .append(ArgumentRenderers.renderAll(retVal)).toString();
   }
 
   private static String buildMethodName(String methodName, String groupName, String separator,
@@ -539,8 +653,7 @@ public class LogUtil {
 
     if (getCount(parameters) != 0) {
       sb.append(DOT).append(SPACE).append(groupName).append(SPACE).append(separator).append(SPACE)
-          .append(
-              Arrays.deepToString(Stream.of(parameters).map(p -> lessVerbose(p, 10)).toArray()));
+          .append(ArgumentRenderers.renderAll(parameters));
     }
 
     return StringReplacer.replaceNewLine(sb.toString());
@@ -609,7 +722,21 @@ public class LogUtil {
   public void initAspects() {
     // you need this if logback is not included in classpath
     setAppLogLevel(logLevel);
+    ArgumentRenderers.configure(COLLECTION_LOG_LIMIT, renderDepthMax, renderToStringMax);
     initExceptionExclusions();
+    jfrThresholds = initThresholds(jfrMethods);
+    deadlines = initThresholds(deadlineMethods);
+    getLogger().debug("jfrThresholds {}; deadlines {}", jfrThresholds, deadlines);
+    LoggedThrowables.setEnabled(exceptionLogOnce);
+    PiiScanner.configure(piiScan, piiKeywords);
+    DebugBuffer.configure(debugBuffer, debugBufferSize, debugBufferSlowMillis);
+    CallBursts.configure(burstCollapse, burstWarn);
+    InFlightCalls.configure(inFlight || !deadlines.isEmpty(),
+        deadlines.isEmpty() ? 0 : deadlineCheckMillis);
+    if (logMethodAllocation && !AllocationStats.isSupported()) {
+      getLogger().warn("yaolog.method.allocation.log: thread allocation accounting is not supported");
+      logMethodAllocation = false;
+    }
     getLogger().debug(
         "CLOUD_ENVIRONMENT {}; Application log level {}; LOG_POINTCUT_EXPRESSION: {};"
             + "\n\r logMethodDuration {}; exceptionLogInfoClasses {}; exceptionLogWarnClasses {}",
@@ -627,6 +754,52 @@ public class LogUtil {
         exceptionLogInfoClasses, exceptionLogWarnClasses, exceptionLogStacktraceHideClasses);
   }
 
+  /**
+   * Parses "name[:msec.]" entries, name is class.method, class or *
+   * @return nanos by name, 0 when no number
+   */
+  private Map<String, Long> initThresholds(Set<String> entries) {
+    Map<String, Long> thresholds = new HashMap<>();
+    for (String entry : entries) {
+      if (StringUtils.isBlank(entry)) {
+        continue;
+      }
+      String[] parts = entry.trim().split(COLON);
+      try {
+        thresholds.put(parts[0].trim(), parts.length < 2 ? 0L
+            : TimeUnit.MILLISECONDS.toNanos(Long.parseLong(parts[1].trim())));
+      } catch (NumberFormatException e) {
+        errorMethodException(LogUtil.class, e, entry);
+      }
+    }
+    return thresholds;
+  }
+
+  /**
+   * @return threshold of the method, its class or *, null if none
+   */
+  private static Long threshold(Map<String, Long> thresholds, Class<?> targetClass,
+      Method method) {
+    Long threshold = thresholds.get(targetClass.getName() + DOT + method.getName());
+    if (threshold == null) {
+      threshold = thresholds.get(targetClass.getName());
+    }
+    if (threshold == null) {
+      threshold = thresholds.get("*");
+    }
+    return threshold;
+  }
+
+  private long jfrThreshold(Class<?> targetClass, Method method) {
+    Long threshold = threshold(jfrThresholds, targetClass, method);
+    return threshold == null ? AdviceSettings.JFR_DISABLED : threshold;
+  }
+
+  private long deadline(Class<?> targetClass, Method method) {
+    Long deadline = threshold(deadlines, targetClass, method);
+    return deadline == null || deadline <= 0 ? InFlightCalls.NO_DEADLINE : deadline;
+  }
+
   private Set<Class<?>> initExclusions(Set<String> classNames) {
     return classNames.stream().filter(s -> s != null && s.trim().length() > 0).map(this::toClass)
         .filter(Objects::nonNull).collect(Collectors.toSet());
@@ -689,13 +862,14 @@ public class LogUtil {
   }
 
   private String messageBefore(JoinPoint joinPoint) {
-    return METHOD_ENTRY_ + getDescription(joinPoint);
+    return maskPii(METHOD_ENTRY_ + getDescription(joinPoint));
   }
 
   private String messageAfter(JoinPoint joinPoint, Object result) {
-    return StringReplacer.replaceNewLine(new StringBuilder(METHOD_EXIT_).append(getSignatureName(joinPoint))
+    return maskPii(StringReplacer.replaceNewLine(new StringBuilder(METHOD_EXIT_).append(getSignatureName(joinPoint))
         .append("; return value: ")
-        .append(hideReturnValue(joinPoint) ? NOT_LOGGED : lessVerboze(result)).toString());
+        .append(hideReturnValue(joinPoint) ? NOT_LOGGED : ArgumentRenderers.render(result))
+        .toString()));
   }
 
   private boolean hideElement(final JoinPoint joinPoint, final Predicate<HideLogElements> hider) {
@@ -709,30 +883,38 @@ public class LogUtil {
   }
 
   private boolean hideReturnValue(final JoinPoint joinPoint) {
-    return hideElement(joinPoint, HideLogElements::hideReturnValue);
+    return adviceSettings(joinPoint).isHideReturnValue();
   }
 
   private boolean hideParameters(final JoinPoint joinPoint) {
-    return hideElement(joinPoint, HideLogElements::hideParameters);
+    return adviceSettings(joinPoint).isHideParameters();
   }
 
-  private static Object lessVerbose(Object value, int maxItems) {
-    Object reduced = value;
-    if (value != null && Collection.class.isAssignableFrom(value.getClass())) {
-      Collection<?> fromResult = (Collection<?>) value;
-      if (fromResult.size() > maxItems) {
-        reduced = new StringBuilder("Large entry of ").append(fromResult.size())
-            .append(" items, reduced to first ").append(maxItems).append(" units: ")
-            .append(fromResult.stream().limit(maxItems).collect(Collectors.toList()));
+  /**
+   * Gets settings from the memory cache, build time index or annotations of the join point
+   * @param joinPoint method join point
+   * @return logging settings of the method
+   */
+  private AdviceSettings adviceSettings(final JoinPoint joinPoint) {
+    final Class<?> targetClass = joinPoint.getTarget().getClass();
+    final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    Map<Method, AdviceSettings> methods = adviceSettings.get(targetClass);
+    if (methods == null) {
+      methods = adviceSettings.computeIfAbsent(targetClass, c -> new ConcurrentHashMap<>());
+    }
+    AdviceSettings settings = methods.get(method);
+    if (settings == null) {
+      settings = AdviceIndex.find(targetClass, method);
+      if (settings == null) {
+        settings = new AdviceSettings(infoAnnotated(joinPoint),
+            hideElement(joinPoint, HideLogElements::hideReturnValue),
+            hideElement(joinPoint, HideLogElements::hideParameters));
       }
-      fromResult.stream().limit(maxItems).collect(Collectors.toList());
+      settings = settings.withJfrThreshold(jfrThreshold(targetClass, method))
+          .withDeadline(deadline(targetClass, method));
+      methods.put(method, settings);
     }
-    return reduced;
-
-  }
-
-  private Object lessVerboze(Object value) {
-    return lessVerbose(value, COLLECTION_LOG_LIMIT);
+    return settings;
   }
 
   /**
@@ -743,7 +925,7 @@ public class LogUtil {
    */
   public void logAfterReturning(JoinPoint joinPoint, Object result) {
     Logger logger = getLogger(joinPoint);
-    boolean info = isInfoEnabled(logger) && infoAnnotated(joinPoint);
+    boolean info = isInfoEnabled(logger) && adviceSettings(joinPoint).isInfo();
     if (info) {
       logger.info(messageAfter(joinPoint, result));
     } else if (isDebugEnabled(logger)) {
@@ -792,18 +974,28 @@ public class LogUtil {
 
   private void logAdvicedWhenException(Consumer<String> verboseLogger,
       Consumer<String> digestLogger, JoinPoint joinPoint, Throwable e) {
+    Throwable logged = verboseLogger == null ? null : LoggedThrowables.logOnce(e);
+    if (logged != null) {
+      // stack trace is logged by inner frame
+      verboseLogger.accept(maskPii(LoggedThrowables.digest(getSignatureName(joinPoint), e, logged)));
+      return;
+    }
     StringBuilder message =
         new StringBuilder(METHOD_EXIT_WITH_EXCEPTION).append(getDescription(joinPoint));
     if (digestLogger != null) {
-      digestLogger.accept(StringReplacer
-          .replaceNewLine(message.append(COLON).append(SPACE).append(e.getMessage()).toString()));
+      digestLogger.accept(maskPii(StringReplacer
+          .replaceNewLine(message.append(COLON).append(SPACE).append(e.getMessage()).toString())));
     } else if (verboseLogger != null) {
-      verboseLogger.accept(StringReplacer.throwableMessage(message.toString(), e));
+      verboseLogger.accept(maskPii(StringReplacer.throwableMessage(message.toString(), e)));
     }
   }
 
   /**
-   * AOP logging around public methods
+   * AOP logging around public methods. In JFR mode (yaolog.method.jfr) method duration is
+   * recorded as MethodInvocationEvent instead of the log line. With yaolog.debug.buffer DEBUG
+   * lines are kept in DebugBuffer until the request fails or is slow. With
+   * yaolog.method.burst.collapse repeated calls are logged as one CallBursts line. With
+   * yaolog.method.inflight or yaolog.method.deadline the invocation is registered in InFlightCalls
    * @param joinPoint method's join point
    * @return method's return value
    * @throws Throwable exception thrown by method
@@ -814,38 +1006,117 @@ public class LogUtil {
     final Logger logger = getLogger(joinPoint);
     boolean info = isInfoEnabled(logger) && autoInfo(joinPoint);
     boolean debug = isDebugEnabled(logger);
+    final long jfrThreshold = jfrThresholds.isEmpty() ? AdviceSettings.JFR_DISABLED
+        : adviceSettings(joinPoint).getJfrThresholdNanos();
+    final Object jfrEvent = jfrThreshold < 0 ? null : JfrRecorder.begin();
+    // set up within the try, so that finally ends what has begun even if a later step throws
+    DebugBuffer.Ring ring = null;
+    boolean buffering = false;
+    boolean buffered = false;
+    boolean lines = false;
+    long startNanos = 0;
+    CallBursts.Frame burstFrame = null;
+    InFlightCalls.Invocation invocation = null;
+    Throwable thrown = null;
+    long allocatedBefore = -1;
+    long allocated = -1;
 
     try {
-      if (info || debug) {
-        infoOrDebug(logger, info, debug, messageBefore(joinPoint));
-        if (logMethodDuration) {
+      ring = DebugBuffer.begin();
+      buffering = ring != null;
+      buffered = buffering && !info && !debug;
+      burstFrame = CallBursts.isEnabled() ? CallBursts.enter(
+          ((MethodSignature) joinPoint.getSignature()).getMethod(), getSignatureName(joinPoint),
+          logger, info, debug, buffered) : null;
+      // entry, exit and duration lines of repeated calls are collapsed
+      lines = (info || debug || buffered) && (burstFrame == null || !burstFrame.isCollapsed());
+      startNanos = buffering || burstFrame != null ? System.nanoTime() : 0;
+      invocation = InFlightCalls.isEnabled() ? InFlightCalls.enter(
+          joinPoint.getTarget().getClass(),
+          ((MethodSignature) joinPoint.getSignature()).getMethod(), getSignatureName(joinPoint),
+          logger, adviceSettings(joinPoint).getDeadlineNanos()) : null;
+
+      if (lines) {
+        infoOrDebug(logger, info, debug, buffered, messageBefore(joinPoint));
+        if (logMethodDuration && jfrEvent == null) {
           startTime = Instant.now();
         }
       }
 
-      Object result = joinPoint.proceed();
+      if (logMethodAllocation) {
+        allocatedBefore = AllocationStats.allocatedBytes();
+      }
+      Object result = proceed(joinPoint, burstFrame);
+      allocated = AllocationStats.allocatedSince(allocatedBefore);
 
-      if (info || debug) {
-        infoOrDebug(logger, info, debug, messageAfter(joinPoint, result));
+      if (lines) {
+        infoOrDebug(logger, info, debug, buffered, messageAfter(joinPoint, result));
       }
 
       return result;
     } catch (Throwable e) {
+      thrown = e;
+      if (allocated < 0) {
+        allocated = AllocationStats.allocatedSince(allocatedBefore);
+      }
+      if (buffering) {
+        if (buffered) {
+          logAdvicedWhenException(null, message -> DebugBuffer.add(logger, message), joinPoint, e);
+        }
+        DebugBuffer.flush();
+      }
       if (info || debug) {
         logAfterThrowing(joinPoint, e);
       }
       throw e;
     } finally {
-      if (logMethodDuration && (info || debug)) {
-        infoOrDebug(logger, info, debug,
-            methodDurationMessage(getSignatureName(joinPoint), startTime));
+      try {
+        if (allocated >= 0) {
+          AllocationStats.record(((MethodSignature) joinPoint.getSignature()).getMethod(),
+              allocated);
+        }
+        if (buffering && DebugBuffer.isSlow(System.nanoTime() - startNanos)) {
+          DebugBuffer.flush();
+        }
+        if (jfrEvent != null) {
+          JfrRecorder.commit(jfrEvent, joinPoint.getSignature().getDeclaringType(),
+              joinPoint.getSignature().getName(), thrown, jfrThreshold);
+        } else if (logMethodDuration && lines) {
+          infoOrDebug(logger, info, debug, buffered,
+              methodDurationMessage(getSignatureName(joinPoint), startTime, allocated));
+        }
+      } finally {
+        if (invocation != null) {
+          InFlightCalls.exit(invocation);
+        }
+        if (burstFrame != null) {
+          CallBursts.exit(burstFrame, System.nanoTime() - startNanos);
+        }
+        if (buffering) {
+          DebugBuffer.end(ring);
+        }
+      }
+    }
+  }
+
+  /**
+   * Proceeds with the method; burst of its callees is logged before its exit line
+   */
+  private static Object proceed(ProceedingJoinPoint joinPoint, CallBursts.Frame burstFrame)
+      throws Throwable {
+    try {
+      return joinPoint.proceed();
+    } finally {
+      if (burstFrame != null) {
+        CallBursts.endBurst(burstFrame);
       }
     }
   }
 
   private boolean autoInfo(JoinPoint joinPoint) {
     return (infoController && autoInfo(joinPoint, CLASS_POSTFIX_CONTROLLER))
-        || (infoClient && autoInfo(joinPoint, CLASS_POSTFIX_CLIENT)) || infoAnnotated(joinPoint);
+        || (infoClient && autoInfo(joinPoint, CLASS_POSTFIX_CLIENT))
+        || adviceSettings(joinPoint).isInfo();
   }
 
   private boolean autoInfo(JoinPoint joinPoint, String classNamePostfix) {
@@ -862,7 +1133,7 @@ public class LogUtil {
         .append(
             hasCount(params)
                 ? "; parameters- "
-                    + (hideParameters(joinPoint) ? NOT_LOGGED : Arrays.deepToString(params))
+                    + (hideParameters(joinPoint) ? NOT_LOGGED : ArgumentRenderers.renderAll(params))
                 : "");
     return StringReplacer.replaceNewLine(sb.toString());
   }
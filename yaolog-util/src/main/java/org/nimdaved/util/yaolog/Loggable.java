@@ -0,0 +1,17 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks DTO for compile time generation of reflection free log renderer. Generated renderer is
+ * picked up by AOP logging instead of the DTO's toString(). Fields are rendered directly or
+ * through non-private getters; use {@link LogMask} and {@link LogOmit} to hide sensitive fields.
+ * Requires yaolog-util on the annotation processor path.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Loggable {
+}
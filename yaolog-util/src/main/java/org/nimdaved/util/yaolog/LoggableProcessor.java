@@ -0,0 +1,179 @@
+package org.nimdaved.util.yaolog;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates reflection free {@link ArgumentRenderer} for every {@link Loggable} class. Generated
+ * class is named after the DTO with "_LogRenderer" suffix, e.g. com.acme.UserDto_LogRenderer, and
+ * is discovered by {@link ArgumentRenderers} at runtime
+ */
+@SupportedAnnotationTypes("org.nimdaved.util.yaolog.Loggable")
+public class LoggableProcessor extends AbstractProcessor {
+
+  static final String RENDERER_SUFFIX = "_LogRenderer";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(Loggable.class)) {
+      if (element.getKind().isClass()) {
+        generate((TypeElement) element);
+      } else {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+            "@Loggable is ignored for " + element.getKind(), element);
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement type) {
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+            "@Loggable is ignored for private classes", type);
+        return;
+      }
+    }
+    String packageName = packageOf(type).getQualifiedName().toString();
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    String rendererName =
+        (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            .replace('$', '_') + RENDERER_SUFFIX;
+    String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+    StringBuilder sb = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      sb.append("package ").append(packageName).append(";\n\n");
+    }
+    sb.append("@javax.annotation.processing.Generated(\"").append(getClass().getName())
+        .append("\")\n").append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+        .append("public final class ").append(rendererName)
+        .append(" implements org.nimdaved.util.yaolog.ArgumentRenderer<").append(typeName)
+        .append("> {\n\n").append("  @Override\n  public void render(").append(typeName)
+        .append(" value, org.nimdaved.util.yaolog.RenderContext context) {\n")
+        .append("    context.append(\"").append(type.getSimpleName()).append("{\");\n");
+
+    String separator = "";
+    for (VariableElement field : fields(type)) {
+      if (field.getAnnotation(LogOmit.class) != null) {
+        continue;
+      }
+      String access = accessor(type, field);
+      if (access == null) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+            "Private field without getter is not logged", field);
+        continue;
+      }
+      sb.append("    context.append(\"").append(separator).append(field.getSimpleName())
+          .append("=\")");
+      Integer charsToShow = maskedChars(field);
+      if (charsToShow != null) {
+        sb.append(".mask(").append(access).append(", ").append(charsToShow).append(");\n");
+      } else if (field.asType().getKind().isPrimitive()) {
+        sb.append(".append(String.valueOf(").append(access).append("));\n");
+      } else {
+        sb.append(".render(").append(access).append(");\n");
+      }
+      separator = ", ";
+    }
+    sb.append("    context.append('}');\n  }\n}\n");
+
+    try (Writer writer = processingEnv.getFiler()
+        .createSourceFile(packageName.isEmpty() ? rendererName : packageName + "." + rendererName,
+            type)
+        .openWriter()) {
+      writer.write(sb.toString());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not generate " + rendererName + ": " + e.getMessage(), type);
+    }
+  }
+
+  /**
+   * Instance fields of the type and its superclasses, superclass fields first
+   */
+  private List<VariableElement> fields(TypeElement type) {
+    List<VariableElement> fields = new ArrayList<>();
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() == TypeKind.DECLARED) {
+      TypeElement parent = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+      if (!parent.getQualifiedName().contentEquals(Object.class.getName())
+          && !parent.getQualifiedName().contentEquals(Record.class.getName())) {
+        fields.addAll(fields(parent));
+      }
+    }
+    for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+      if (!field.getModifiers().contains(Modifier.STATIC)) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Field access expression available from the same package: the field itself or its getter
+   */
+  private String accessor(TypeElement type, VariableElement field) {
+    String name = field.getSimpleName().toString();
+    if (isAccessible(field, type)) {
+      return "value." + name;
+    }
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    List<ExecutableElement> methods =
+        ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+    for (String candidate : new String[] {"get" + capitalized, "is" + capitalized, name}) {
+      for (ExecutableElement method : methods) {
+        if (method.getSimpleName().contentEquals(candidate) && method.getParameters().isEmpty()
+            && method.getReturnType().getKind() != TypeKind.VOID
+            && !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method, type)) {
+          return "value." + candidate + "()";
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether the member is accessible from the generated class in the type's package
+   */
+  private boolean isAccessible(Element member, TypeElement type) {
+    Set<Modifier> modifiers = member.getModifiers();
+    if (modifiers.contains(Modifier.PRIVATE)) {
+      return false;
+    }
+    Element owner = member.getEnclosingElement();
+    return (modifiers.contains(Modifier.PUBLIC) && owner.getModifiers().contains(Modifier.PUBLIC))
+        || packageOf(owner).equals(packageOf(type));
+  }
+
+  private PackageElement packageOf(Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  private Integer maskedChars(VariableElement field) {
+    LogMask mask = field.getAnnotation(LogMask.class);
+    return mask == null ? null : mask.charsToShow();
+  }
+}
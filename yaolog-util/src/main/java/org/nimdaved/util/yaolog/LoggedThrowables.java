@@ -0,0 +1,90 @@
+package org.nimdaved.util.yaolog;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Identity tracking of throwables whose stack trace is already logged. Exception passing through
+ * nested advised methods, or wrapped by {@link LogUtil#errorWrapThrow}, is logged in full once;
+ * outer frames log one line digest. Throwables are weakly referenced in one lock-free ring of the
+ * last logged ones, shared by all threads: nothing is kept per thread, which with virtual threads
+ * would be allocated per request. Ring is only touched when an exception is logged.
+ */
+final class LoggedThrowables {
+
+  // power of 2; covers exceptions logged at once by many threads
+  private static final int RING_SIZE = 256;
+  // causes deeper than that are not checked; also guards against cause cycles
+  private static final int MAX_CAUSE_DEPTH = 32;
+  private static final String PROPAGATED_THROUGH = "propagated through ";
+
+  private static final AtomicReferenceArray<WeakReference<Throwable>> LOGGED =
+      new AtomicReferenceArray<>(RING_SIZE);
+  private static final AtomicInteger NEXT = new AtomicInteger();
+  private static volatile boolean enabled = true;
+
+  /**
+   * Switches log once mode, see yaolog.exception.log.once
+   * @param logOnce false to log stack trace at every frame
+   */
+  static void setEnabled(boolean logOnce) {
+    enabled = logOnce;
+  }
+
+  /**
+   * Marks throwable as logged
+   * @param t throwable about to be logged
+   * @return null if neither the throwable nor its causes were logged before, or the throwable
+   *     has no stack trace, so it should be logged in full; otherwise the logged throwable from
+   *     the cause chain
+   */
+  static Throwable logOnce(Throwable t) {
+    if (!enabled || t == null || t.getStackTrace().length == 0) {
+      // stackless throwables, like the JVM's preallocated fast throw ones, are shared instances
+      return null;
+    }
+    Throwable logged = null;
+    Throwable cause = t;
+    for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++) {
+      if (contains(cause)) {
+        logged = cause;
+        break;
+      }
+      cause = cause.getCause();
+    }
+    if (logged != t) {
+      LOGGED.set(NEXT.getAndIncrement() & (RING_SIZE - 1), new WeakReference<>(t));
+    }
+    return logged;
+  }
+
+  private static boolean contains(Throwable t) {
+    for (int i = 0; i < RING_SIZE; i++) {
+      WeakReference<Throwable> ref = LOGGED.get(i);
+      if (ref != null && ref.get() == t) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * One line digest of already logged throwable
+   * @param frame method the throwable propagates through
+   * @param t propagated throwable
+   * @param logged throwable logged before, t itself or one of its causes
+   * @return digest without new line characters
+   */
+  static String digest(String frame, Throwable t, Throwable logged) {
+    StringBuilder sb = new StringBuilder(PROPAGATED_THROUGH).append(frame).append(": ")
+        .append(t.getClass().getName()).append(": ").append(t.getMessage());
+    if (logged != t) {
+      sb.append(" (caused by logged ").append(logged.getClass().getName()).append(')');
+    }
+    return StringReplacer.replaceNewLine(sb.toString());
+  }
+
+  private LoggedThrowables() {
+  }
+}
@@ -0,0 +1,39 @@
+package org.nimdaved.util.yaolog;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event committed by AOP logging for every advised method invocation in JFR
+ * mode (yaolog.method.jfr)
+ */
+@Name(MethodInvocationEvent.NAME)
+@Label("Method Invocation")
+@Category("yaolog")
+@Description("Invocation of a method advised by yaolog LogUtil")
+@StackTrace(false)
+final class MethodInvocationEvent extends Event {
+
+  static final String NAME = "org.nimdaved.yaolog.MethodInvocation";
+  static final String RETURNED = "RETURNED";
+  static final String THREW = "THREW";
+
+  @Label("Method")
+  String method;
+
+  @Label("Declaring Class")
+  Class<?> declaringClass;
+
+  @Label("Outcome")
+  String outcome;
+
+  @Label("Exception Class")
+  Class<?> exceptionClass;
+
+  // not recorded; used for per-method threshold
+  transient long startNanos;
+}
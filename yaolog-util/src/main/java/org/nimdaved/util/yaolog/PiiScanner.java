@@ -0,0 +1,304 @@
+package org.nimdaved.util.yaolog;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Single pass free-text scanner that masks PII in rendered log messages (yaolog.pii.scan):
+ * 1. Card numbers: 13-19 digits, whole groups optionally separated by single spaces or hyphens
+ * (4111111111111111, 4111 1111 1111 1111), that pass the Luhn check. Checked from every digit
+ * group, so neighbouring numbers (amount 25 4111111111111111, expiry 12/26) do not hide the card
+ * 2. SSNs: ddd-dd-dddd
+ * 3. Bearer tokens: value after "Bearer "
+ * 4. Values of identifiers ending with configurable keywords, case-insensitive: password=...,
+ * newPassword=..., "secret": "...", api_key: .... After ':' the value has to look like one:
+ * quoted, having a non-letter character or ending the phrase; so "token: connection reset" prose
+ * is left as is
+ * Values are masked with {@link StringReplacer#obfuscate(String, int)} overlay. Only words
+ * are inspected, digit groups at most {@value #MAX_CARD_DIGITS} digits ahead, so the cost is
+ * linear in the message length; messages without findings are returned as is, without copying.
+ */
+public final class PiiScanner {
+
+  private static final String BEARER = "bearer";
+  private static final int MIN_CARD_DIGITS = 13;
+  private static final int MAX_CARD_DIGITS = 19;
+  private static final int MIN_TOKEN_LENGTH = 8;
+  private static final int CARD_CHARS_TO_SHOW = 4;
+  private static final int TOKEN_CHARS_TO_SHOW = 4;
+  private static final String[] DEFAULT_KEYWORDS = {"password", "passwd", "pwd", "secret",
+      "client_secret", "apikey", "api_key", "access_token", "refresh_token", "token"};
+
+  private static final boolean[] ASCII_WORD_CHARS = asciiWordChars();
+
+  private static volatile boolean enabled;
+  // keywords by their last letter; words ending with other letters are skipped
+  private static volatile String[][] keywords = byLastLetter(DEFAULT_KEYWORDS);
+
+  /**
+   * Configures scanning of messages logged by LogUtil
+   * @param scan true to scan messages
+   * @param extraKeywords keywords whose values are masked in addition to the defaults
+   */
+  public static void configure(boolean scan, Collection<String> extraKeywords) {
+    String[] extra = extraKeywords.stream().map(k -> k.trim().toLowerCase(Locale.ROOT))
+        .filter(k -> !k.isEmpty()).toArray(String[]::new);
+    String[] all = Arrays.copyOf(DEFAULT_KEYWORDS, DEFAULT_KEYWORDS.length + extra.length);
+    System.arraycopy(extra, 0, all, DEFAULT_KEYWORDS.length, extra.length);
+    keywords = byLastLetter(all);
+    enabled = scan;
+  }
+
+  /**
+   * Checks if LogUtil messages are scanned
+   * @return true if scanning is configured
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Masks PII found in the message
+   * @param message rendered message, could be null
+   * @return message with masked values; the same instance if nothing is found
+   */
+  public static String mask(String message) {
+    if (message == null) {
+      return null;
+    }
+    final String[][] words = keywords;
+    final int length = message.length();
+    StringBuilder sb = null;
+    int copied = 0;
+    int i = 0;
+    while (i < length) {
+      char c = message.charAt(i);
+      if (!isWordStart(message, i)) {
+        i++;
+        continue;
+      }
+      int wordEnd = skipWord(message, i);
+      int start = -1;
+      int end = -1;
+      int charsToShow = 0;
+      if (isDigit(c)) {
+        end = cardEnd(message, i);
+        if (end >= 0) {
+          start = i;
+          charsToShow = CARD_CHARS_TO_SHOW;
+        } else {
+          end = ssnEnd(message, i);
+          start = end >= 0 ? i : -1;
+        }
+      } else {
+        int valueStart = bearerValue(message, i, wordEnd);
+        if (valueStart >= 0) {
+          charsToShow = TOKEN_CHARS_TO_SHOW;
+        } else {
+          valueStart = keywordValue(message, i, wordEnd, words);
+        }
+        if (valueStart >= 0) {
+          int valueEnd = valueEnd(message, valueStart);
+          if (valueEnd - valueStart >= (charsToShow > 0 ? MIN_TOKEN_LENGTH : 1)) {
+            start = valueStart;
+            end = valueEnd;
+          } else {
+            end = valueStart;
+          }
+        }
+      }
+      if (start >= 0) {
+        if (sb == null) {
+          sb = new StringBuilder(length + 8);
+        }
+        sb.append(message, copied, start).append(StringReplacer.obfuscate(
+            message.substring(start, end), charsToShow));
+        copied = end;
+      }
+      i = end > i ? end : wordEnd;
+    }
+    if (sb == null) {
+      return message;
+    }
+    return sb.append(message, copied, length).toString();
+  }
+
+  /**
+   * End of card number starting at the digit group, or -1. Groups are added while they are
+   * separated by single spaces or hyphens; the first 13-19 digits long run passing the Luhn
+   * check is the card.
+   */
+  private static int cardEnd(String s, int from) {
+    int digits = 0;
+    int i = from;
+    while (i < s.length() && digits <= MAX_CARD_DIGITS) {
+      char c = s.charAt(i);
+      if (isDigit(c)) {
+        digits++;
+        i++;
+        continue;
+      }
+      if (digits >= MIN_CARD_DIGITS && isLuhn(s, from, i) && !Character.isLetter(c)) {
+        return i;
+      }
+      if ((c == ' ' || c == '-') && i + 1 < s.length() && isDigit(s.charAt(i + 1))) {
+        i++;
+      } else {
+        return -1;
+      }
+    }
+    return i == s.length() && digits >= MIN_CARD_DIGITS && digits <= MAX_CARD_DIGITS
+        && isLuhn(s, from, i) ? i : -1;
+  }
+
+  private static boolean isLuhn(String s, int start, int end) {
+    int digits = 0;
+    int sum = 0;
+    for (int i = end - 1; i >= start; i--) {
+      char c = s.charAt(i);
+      if (isDigit(c)) {
+        int d = c - '0';
+        if ((digits++ & 1) == 1) {
+          d = d * 2 > 9 ? d * 2 - 9 : d * 2;
+        }
+        sum += d;
+      }
+    }
+    return sum % 10 == 0;
+  }
+
+  /**
+   * End of ddd-dd-dddd SSN starting at the position, or -1
+   */
+  private static int ssnEnd(String s, int from) {
+    int end = from + 11;
+    if (end > s.length() || (end < s.length() && Character.isLetterOrDigit(s.charAt(end)))) {
+      return -1;
+    }
+    for (int i = from; i < end; i++) {
+      int group = i - from;
+      if ((group == 3 || group == 6) != (s.charAt(i) == '-')
+          || (group != 3 && group != 6 && !isDigit(s.charAt(i)))) {
+        return -1;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Start of the token after "Bearer " word, or -1
+   */
+  private static int bearerValue(String s, int i, int wordEnd) {
+    if (wordEnd - i != BEARER.length() || !s.regionMatches(true, i, BEARER, 0, BEARER.length())
+        || wordEnd >= s.length() || s.charAt(wordEnd) != ' ') {
+      return -1;
+    }
+    return skip(s, wordEnd, " ");
+  }
+
+  /**
+   * Start of the value after the word ending with keyword, separator and optional quotes, or -1
+   */
+  private static int keywordValue(String s, int i, int wordEnd, String[][] words) {
+    char last = Character.toLowerCase(s.charAt(wordEnd - 1));
+    if (last >= words.length || words[last] == null) {
+      return -1;
+    }
+    for (String word : words[last]) {
+      if (wordEnd - i < word.length()
+          || !s.regionMatches(true, wordEnd - word.length(), word, 0, word.length())) {
+        continue;
+      }
+      int j = skip(s, wordEnd, "\"' ");
+      if (j == s.length() || (s.charAt(j) != '=' && s.charAt(j) != ':')) {
+        return -1;
+      }
+      int value = skip(s, j + 1, "\"' ");
+      if (value == s.length()
+          || (s.charAt(j) == ':' && !isValueLike(s, value, valueEnd(s, value)))) {
+        return -1;
+      }
+      return value;
+    }
+    return -1;
+  }
+
+  /**
+   * Value after ':' is quoted, has non-letter characters, or is not followed by another word
+   */
+  private static boolean isValueLike(String s, int start, int end) {
+    char before = s.charAt(start - 1);
+    if (before == '"' || before == '\'') {
+      return true;
+    }
+    for (int i = start; i < end; i++) {
+      if (!Character.isLetter(s.charAt(i))) {
+        return true;
+      }
+    }
+    int next = skip(s, end, " ");
+    return next == s.length() || !isWordChar(s.charAt(next));
+  }
+
+  private static int valueEnd(String s, int from) {
+    int i = from;
+    while (i < s.length() && ",;&\"' )]}\u2028".indexOf(s.charAt(i)) < 0) {
+      i++;
+    }
+    // sentence full stop is not a part of the value
+    return i > from + 1 && s.charAt(i - 1) == '.' ? i - 1 : i;
+  }
+
+  private static int skip(String s, int from, String chars) {
+    int i = from;
+    while (i < s.length() && chars.indexOf(s.charAt(i)) >= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipWord(String s, int from) {
+    int i = from + 1;
+    while (i < s.length() && isWordChar(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isWordStart(String s, int i) {
+    return isWordChar(s.charAt(i)) && (i == 0 || !isWordChar(s.charAt(i - 1)));
+  }
+
+  private static boolean isWordChar(char c) {
+    return c < ASCII_WORD_CHARS.length ? ASCII_WORD_CHARS[c] : Character.isLetterOrDigit(c);
+  }
+
+  private static boolean[] asciiWordChars() {
+    boolean[] chars = new boolean[128];
+    for (char c = 0; c < chars.length; c++) {
+      chars[c] = Character.isLetterOrDigit(c) || c == '_';
+    }
+    return chars;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static String[][] byLastLetter(String[] words) {
+    String[][] index = new String[128][];
+    for (String word : words) {
+      char c = word.charAt(word.length() - 1);
+      if (c < index.length) {
+        String[] same = index[c] == null ? new String[0] : index[c];
+        index[c] = Arrays.copyOf(same, same.length + 1);
+        index[c][same.length] = word;
+      }
+    }
+    return index;
+  }
+
+  private PiiScanner() {
+  }
+}
@@ -0,0 +1,121 @@
+package org.nimdaved.util.yaolog;
+
+/**
+ * State of a single render call: output buffer, collection limit, depth and cycle guards
+ */
+public final class RenderContext {
+
+  // masked values of this length or shorter show no characters
+  private static final int MASK_SHORT_LENGTH = 12;
+
+  private final StringBuilder sb;
+  private final int limit;
+  private final Object[] path;
+  private int depth;
+
+  RenderContext(StringBuilder sb, int limit, int maxDepth) {
+    this.sb = sb;
+    this.limit = limit;
+    this.path = new Object[maxDepth];
+  }
+
+  /**
+   * Renders nested value with registered renderer. Values deeper than max depth and values
+   * referring to own ancestors are rendered by type name only
+   * @param value any value, could be null
+   * @return this context
+   */
+  public RenderContext render(Object value) {
+    if (value == null) {
+      sb.append("null");
+      return this;
+    }
+    ArgumentRenderer<Object> renderer = ArgumentRenderers.rendererFor(value.getClass());
+    if (ArgumentRenderers.isLeaf(renderer)) {
+      renderer.render(value, this);
+    } else if (depth >= path.length) {
+      sb.append(value.getClass().getSimpleName()).append("{...}");
+    } else if (isAncestor(value)) {
+      sb.append(value.getClass().getSimpleName()).append("{cycle}");
+    } else {
+      path[depth++] = value;
+      try {
+        renderer.render(value, this);
+      } finally {
+        path[--depth] = null;
+      }
+    }
+    return this;
+  }
+
+  private boolean isAncestor(Object value) {
+    for (int i = 0; i < depth; i++) {
+      if (path[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Appends text to the output
+   * @param s text
+   * @return this context
+   */
+  public RenderContext append(CharSequence s) {
+    sb.append(s);
+    return this;
+  }
+
+  /**
+   * Appends character to the output
+   * @param c character
+   * @return this context
+   */
+  public RenderContext append(char c) {
+    sb.append(c);
+    return this;
+  }
+
+  /**
+   * Appends number to the output
+   * @param l number
+   * @return this context
+   */
+  public RenderContext append(long l) {
+    sb.append(l);
+    return this;
+  }
+
+  /**
+   * Appends masked value, see {@link StringReplacer#obfuscate(String, int)}. Short values are
+   * masked in full, longer ones show at most a quarter of the value at each end
+   * @param value sensitive value, could be null
+   * @param charsToShow number of characters in the value's beginning and end to be shown
+   * @return this context
+   */
+  public RenderContext mask(Object value, int charsToShow) {
+    if (value == null) {
+      sb.append("null");
+      return this;
+    }
+    String secret = String.valueOf(value);
+    int length = secret.length();
+    int shown = length <= MASK_SHORT_LENGTH ? 0 : Math.min(charsToShow, length / 4);
+    sb.append(StringReplacer.obfuscate(secret, Math.max(0, shown)));
+    return this;
+  }
+
+  /**
+   * Max number of collection, map or array items to render
+   * @return items limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return sb.toString();
+  }
+}
@@ -0,0 +1,22 @@
+package org.nimdaved.util.yaolog;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Spring AOT reflection and resource hints for running AOP logging in GraalVM native image.
+ * Hints for the application's advised classes are generated by {@link AdviceIndexProcessor}
+ */
+public class YaologRuntimeHints implements RuntimeHintsRegistrar {
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    hints.resources().registerPattern(AdviceIndex.RESOURCE);
+    hints.reflection().registerType(LogUtil.class, MemberCategory.INVOKE_PUBLIC_METHODS,
+        MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+    hints.reflection().registerType(LogInfo.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    hints.reflection().registerType(HideLogElements.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    hints.reflection().registerType(Loggable.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+  }
+}
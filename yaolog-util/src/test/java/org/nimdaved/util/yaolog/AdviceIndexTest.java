@@ -0,0 +1,44 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.Test;
+
+class AdviceIndexTest {
+
+  interface Saver<T> {
+    T save(T value);
+  }
+
+  static class FooRepository implements Saver<String> {
+    @Override
+    @LogInfo
+    public String save(String value) {
+      return value;
+    }
+
+    public int count() {
+      return 0;
+    }
+  }
+
+  @Test
+  void indexedMethodsAreFound() throws NoSuchMethodException {
+    assertTrue(AdviceIndex.find(FooRepository.class,
+        FooRepository.class.getMethod("save", String.class)).isInfo());
+    assertFalse(AdviceIndex.find(FooRepository.class,
+        FooRepository.class.getMethod("count")).isInfo());
+  }
+
+  @Test
+  void methodMissingFromIndexIsLookedUpAtRunTime() throws NoSuchMethodException {
+    Method bridge = FooRepository.class.getMethod("save", Object.class);
+    assertTrue(bridge.isBridge());
+    assertNull(AdviceIndex.find(FooRepository.class, bridge));
+    assertNull(AdviceIndex.find(FooRepository.class,
+        FooRepository.class.getMethod("hashCode")));
+  }
+}
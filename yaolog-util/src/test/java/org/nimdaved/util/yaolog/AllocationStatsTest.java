@@ -0,0 +1,23 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AllocationStatsTest {
+
+  @Test
+  void allocationOfCurrentThreadIsMeasured() {
+    assumeTrue(AllocationStats.isSupported());
+    long before = AllocationStats.allocatedBytes();
+    byte[] block = new byte[64 * 1024];
+    long allocated = AllocationStats.allocatedSince(before);
+    assertTrue(allocated >= block.length, "allocated " + allocated);
+  }
+
+  @Test
+  void notMeasuredStartIsNotMeasured() {
+    assertTrue(AllocationStats.allocatedSince(-1) < 0);
+  }
+}
@@ -0,0 +1,68 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ArgumentRenderersTest {
+
+  static final class Large {
+    @Override
+    public String toString() {
+      return "x".repeat(50);
+    }
+  }
+
+  static final class Cyclic {
+    Cyclic self = this;
+
+    @Override
+    public String toString() {
+      return "Cyclic[" + self + "]";
+    }
+  }
+
+  // compiled without LoggableProcessor
+  @Loggable
+  static final class Credentials {
+    @LogMask
+    String password = "hunter2";
+
+    @Override
+    public String toString() {
+      return "Credentials[password=" + password + "]";
+    }
+  }
+
+  static final class Failing {
+    @Override
+    public String toString() {
+      throw new IllegalStateException("lazy");
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    ArgumentRenderers.configure(10, 3, 1000);
+  }
+
+  @Test
+  void loggableWithoutGeneratedRendererIsNotRenderedByToString() {
+    assertEquals("Credentials[?]", ArgumentRenderers.render(new Credentials()));
+  }
+
+  @Test
+  void longToStringIsTruncated() {
+    ArgumentRenderers.configure(10, 3, 10);
+    assertEquals("xxxxxxxxxx...(50 chars)", ArgumentRenderers.render(new Large()));
+  }
+
+  @Test
+  void failingToStringIsRenderedAsType() {
+    assertEquals(Cyclic.class.getName() + "{toString failed: StackOverflowError}",
+        ArgumentRenderers.render(new Cyclic()));
+    assertEquals(Failing.class.getName() + "{toString failed: IllegalStateException}",
+        ArgumentRenderers.render(new Failing()));
+  }
+}
@@ -0,0 +1,131 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+class CallBurstsTest {
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger("yaolog.test.CallBurstsTest");
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  static class Repository {
+    public void findById() {
+    }
+
+    public void findItems() {
+    }
+
+    public void save() {
+    }
+  }
+
+  static class Service {
+    public void placeOrder() {
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    CallBursts.configure(true, 0);
+    appender.start();
+    logger.addAppender(appender);
+    logger.setLevel(Level.DEBUG);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+    CallBursts.configure(false, 0);
+  }
+
+  @Test
+  void repeatedCallsAreLoggedAsOneBurstLine() throws Exception {
+    CallBursts.Frame parent = enter(Service.class, "placeOrder");
+    for (int i = 0; i < 3; i++) {
+      CallBursts.Frame call = enter(Repository.class, "findById");
+      assertEquals(i > 0, call.isCollapsed(), "call " + i);
+      CallBursts.exit(call, TimeUnit.MILLISECONDS.toNanos(5 + 2 * i));
+    }
+    assertTrue(appender.list.isEmpty());
+    CallBursts.exit(parent, TimeUnit.MILLISECONDS.toNanos(30));
+
+    assertEquals(1, appender.list.size());
+    ILoggingEvent burst = appender.list.get(0);
+    assertEquals(Level.INFO, burst.getLevel());
+    assertEquals("findById: Method burst: 3 calls by placeOrder, total 21 msec., max 9 msec.",
+        burst.getFormattedMessage());
+  }
+
+  @Test
+  void burstEndsWhenParentCallsAnotherMethod() throws Exception {
+    CallBursts.Frame parent = enter(Service.class, "placeOrder");
+    CallBursts.exit(enter(Repository.class, "findById"), 0);
+    CallBursts.exit(enter(Repository.class, "findById"), 0);
+    CallBursts.Frame save = enter(Repository.class, "save");
+    assertFalse(save.isCollapsed());
+    assertEquals(1, appender.list.size());
+    assertTrue(appender.list.get(0).getFormattedMessage().startsWith(
+        "findById: Method burst: 2 calls by placeOrder"));
+    CallBursts.exit(save, 0);
+    CallBursts.exit(parent, 0);
+    // single save call is not a burst
+    assertEquals(1, appender.list.size());
+  }
+
+  @Test
+  void callsOfRepeatedCallAreCollapsed() throws Exception {
+    CallBursts.Frame parent = enter(Service.class, "placeOrder");
+    for (int i = 0; i < 2; i++) {
+      CallBursts.Frame call = enter(Repository.class, "findById");
+      for (int j = 0; j < 3; j++) {
+        CallBursts.Frame nested = enter(Repository.class, "findItems");
+        assertEquals(i > 0 || j > 0, nested.isCollapsed(), "call " + i + ", nested " + j);
+        CallBursts.exit(nested, 0);
+      }
+      CallBursts.exit(call, 0);
+    }
+    CallBursts.exit(parent, 0);
+
+    // the nested burst of the first call only; the second call is collapsed with its callees
+    assertEquals(2, appender.list.size());
+    assertTrue(appender.list.get(0).getFormattedMessage().startsWith(
+        "findItems: Method burst: 3 calls by findById"));
+    assertTrue(appender.list.get(1).getFormattedMessage().startsWith(
+        "findById: Method burst: 2 calls by placeOrder"));
+  }
+
+  @Test
+  void burstReachingWarnThresholdIsLoggedAtWarn() throws Exception {
+    CallBursts.configure(true, 3);
+    CallBursts.Frame parent = enter(Service.class, "placeOrder");
+    CallBursts.exit(enter(Repository.class, "findById"), 0);
+    CallBursts.exit(enter(Repository.class, "findById"), 0);
+    CallBursts.exit(enter(Repository.class, "save"), 0);
+    CallBursts.exit(enter(Repository.class, "save"), 0);
+    CallBursts.exit(enter(Repository.class, "save"), 0);
+    CallBursts.exit(parent, 0);
+
+    assertEquals(2, appender.list.size());
+    assertEquals(Level.INFO, appender.list.get(0).getLevel());
+    assertTrue(appender.list.get(0).getFormattedMessage().startsWith("findById"));
+    assertEquals(Level.WARN, appender.list.get(1).getLevel());
+    assertTrue(appender.list.get(1).getFormattedMessage().startsWith("save"));
+  }
+
+  private CallBursts.Frame enter(Class<?> type, String name) throws NoSuchMethodException {
+    Method method = type.getMethod(name);
+    return CallBursts.enter(method, name, logger, true, false, false);
+  }
+}
@@ -0,0 +1,132 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class InFlightCallsTest {
+
+  @Test
+  void resetKeepsGaugesOfRunningInvocations() throws NoSuchMethodException {
+    Method method = InFlightCallsTest.class.getDeclaredMethod("running");
+    InFlightCalls.Invocation first = enter(method);
+    InFlightCalls.Invocation second = enter(method);
+    InFlightCalls.reset();
+    InFlightCalls.exit(first);
+    InFlightCalls.exit(second);
+
+    InFlightCalls.Gauge gauge = gauge(".running");
+    assertEquals(0, gauge.getInFlight());
+    assertEquals(2, gauge.getPeak());
+    InFlightCalls.reset();
+    assertEquals(0, gauge.getPeak());
+    assertTrue(InFlightCalls.getGauges().contains(gauge));
+  }
+
+  @Test
+  void reportIsOneLine() throws NoSuchMethodException {
+    Method method = InFlightCallsTest.class.getDeclaredMethod("reported");
+    InFlightCalls.exit(enter(method));
+    String report = InFlightCalls.report(10);
+    assertFalse(report.contains(System.lineSeparator()), report);
+    assertTrue(report.contains(InFlightCallsTest.class.getName() + ".reported"), report);
+  }
+
+  @Test
+  void watchdogWarnsOncePerInvocation() throws Exception {
+    ch.qos.logback.classic.Logger logger =
+        (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("yaolog.test.InFlightCallsTest");
+    ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    appender.start();
+    logger.addAppender(appender);
+    try {
+      Method method = InFlightCallsTest.class.getDeclaredMethod("stuck");
+      InFlightCalls.Invocation invocation = enterWithDeadline(method, logger);
+      Thread.sleep(5);
+      InFlightCalls.check();
+      InFlightCalls.check();
+      InFlightCalls.exit(invocation);
+
+      assertEquals(1, appender.list.size());
+      ILoggingEvent event = appender.list.get(0);
+      assertEquals(Level.WARN, event.getLevel());
+      assertTrue(event.getFormattedMessage().startsWith("stuck: Method still running: "),
+          event.getFormattedMessage());
+      assertTrue(event.getFormattedMessage().contains("watchdogWarnsOncePerInvocation"),
+          event.getFormattedMessage());
+    } finally {
+      logger.detachAppender(appender);
+    }
+  }
+
+  @Test
+  void failedReportDoesNotStopWatchdog() throws Exception {
+    Logger failing = (Logger) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Logger.class}, (p, m, args) -> {
+          if (m.getName().equals("warn")) {
+            throw new IllegalStateException("appender failed");
+          }
+          return m.getReturnType() == boolean.class ? Boolean.TRUE : null;
+        });
+    ch.qos.logback.classic.Logger logger =
+        (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("yaolog.test.InFlightWatchdog");
+    ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    appender.start();
+    logger.addAppender(appender);
+    try {
+      InFlightCalls.Invocation broken = enterWithDeadline(
+          InFlightCallsTest.class.getDeclaredMethod("unreported"), failing);
+      InFlightCalls.Invocation watched = enterWithDeadline(
+          InFlightCallsTest.class.getDeclaredMethod("watched"), logger);
+      Thread.sleep(5);
+      InFlightCalls.check();
+      InFlightCalls.exit(broken);
+      InFlightCalls.exit(watched);
+
+      assertEquals(1, appender.list.size());
+      assertTrue(appender.list.get(0).getFormattedMessage().startsWith("watched: "));
+    } finally {
+      logger.detachAppender(appender);
+    }
+  }
+
+  private static InFlightCalls.Invocation enterWithDeadline(Method method, Logger logger) {
+    return InFlightCalls.enter(InFlightCallsTest.class, method, method.getName(), logger,
+        TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private static InFlightCalls.Invocation enter(Method method) {
+    return InFlightCalls.enter(InFlightCallsTest.class, method, method.getName(),
+        LoggerFactory.getLogger(InFlightCallsTest.class), InFlightCalls.NO_DEADLINE);
+  }
+
+  private static InFlightCalls.Gauge gauge(String suffix) {
+    return InFlightCalls.getGauges().stream().filter(g -> g.getMethod().endsWith(suffix))
+        .findFirst().orElseThrow();
+  }
+
+  void running() {
+  }
+
+  void reported() {
+  }
+
+  void stuck() {
+  }
+
+  void unreported() {
+  }
+
+  void watched() {
+  }
+}
@@ -0,0 +1,68 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LogAroundTest {
+
+  public static class Service {
+    public String save(String id) {
+      return id;
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    DebugBuffer.configure(false, 0, -1);
+    InFlightCalls.configure(false, 0);
+  }
+
+  @Test
+  void debugBufferIsEndedWhenAdviceSetupFails() throws Exception {
+    DebugBuffer.configure(true, 16, -1);
+    InFlightCalls.configure(true, 0);
+    Method method = Service.class.getMethod("save", String.class);
+    // signature name is first needed to register the in-flight call, after the buffer begins
+    MethodSignature signature = (MethodSignature) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {MethodSignature.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getMethod":
+              return method;
+            case "getDeclaringType":
+              return Service.class;
+            case "getName":
+              throw new IllegalStateException("no name");
+            default:
+              return null;
+          }
+        });
+    Service target = new Service();
+    ProceedingJoinPoint joinPoint = (ProceedingJoinPoint) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ProceedingJoinPoint.class},
+        (p, m, args) -> {
+          switch (m.getName()) {
+            case "getTarget":
+            case "getThis":
+              return target;
+            case "getSignature":
+              return signature;
+            case "getArgs":
+              return new Object[] {"1"};
+            case "proceed":
+              return "1";
+            default:
+              return null;
+          }
+        });
+
+    assertThrows(IllegalStateException.class, () -> new LogUtil().logAround(joinPoint));
+    assertEquals(0, DebugBuffer.depth());
+  }
+}
@@ -0,0 +1,27 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LogElevationFilterTest {
+
+  @Test
+  void headerIsIgnoredWithoutToken() {
+    LogElevationFilter filter = new LogElevationFilter();
+    filter.setToken(" ");
+    assertFalse(filter.isElevationRequested("true"));
+    assertFalse(filter.isElevationRequested(" "));
+    assertFalse(filter.isElevationRequested(null));
+  }
+
+  @Test
+  void headerMustMatchToken() {
+    LogElevationFilter filter = new LogElevationFilter();
+    filter.setToken("s3cr3t");
+    assertTrue(filter.isElevationRequested(" s3cr3t "));
+    assertFalse(filter.isElevationRequested("true"));
+    assertFalse(filter.isElevationRequested("s3cr3"));
+  }
+}
@@ -0,0 +1,46 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+class LogElevationTurboFilterTest {
+
+  private final LoggerContext context = new LoggerContext();
+  private final LogElevationTurboFilter filter = new LogElevationTurboFilter();
+
+  LogElevationTurboFilterTest() {
+    filter.setContext(context);
+    filter.start();
+    context.addTurboFilter(filter);
+  }
+
+  @Test
+  void elevatedThreadPassesDebugOnly() {
+    Logger warn = context.getLogger("com.x.Service");
+    warn.setLevel(Level.WARN);
+    Logger off = context.getLogger("com.x.Noisy");
+    off.setLevel(Level.OFF);
+    assertFalse(warn.isDebugEnabled());
+
+    LogElevation.Scope scope = LogElevation.elevate();
+    try {
+      assertTrue(warn.isDebugEnabled());
+      assertFalse(warn.isInfoEnabled());
+      assertFalse(off.isInfoEnabled());
+      assertFalse(off.isErrorEnabled());
+      assertEquals(FilterReply.NEUTRAL,
+          filter.decide(null, warn, Level.ERROR, "failed", null, null));
+      assertEquals(FilterReply.NEUTRAL, filter.decide(null, warn, Level.INFO, "done", null, null));
+    } finally {
+      scope.close();
+    }
+    assertFalse(warn.isDebugEnabled());
+  }
+}
@@ -0,0 +1,69 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+class LogUtilTest {
+
+  private static final String CARD = "4111111111111111";
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger("yaolog.test.LogUtilTest");
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  @BeforeEach
+  void setUp() {
+    PiiScanner.configure(true, Collections.emptySet());
+    appender.start();
+    logger.addAppender(appender);
+    logger.setLevel(Level.DEBUG);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+    PiiScanner.configure(false, Collections.emptySet());
+  }
+
+  @Test
+  void methodEntryMasksPii() {
+    LogUtil.logMethodEntry(logger, "pay", CARD, "Bearer eyJhbGciOiJIUzI1NiJ9.payload");
+    String message = singleMessage();
+    assertFalse(message.contains(CARD), message);
+    assertTrue(message.contains("4111******1111"), message);
+    assertFalse(message.contains("eyJhbGciOiJIUzI1NiJ9.payload"), message);
+  }
+
+  @Test
+  void methodExitMasksPii() {
+    LogUtil.logMethodExit(logger, "ssn", "123-45-6789");
+    String message = singleMessage();
+    assertFalse(message.contains("123-45-6789"), message);
+  }
+
+  @Test
+  void formattedMessageMasksPii() {
+    IllegalStateException e = new IllegalStateException("declined");
+    LogUtil.warn(logger, "card {} for {} declined", CARD, "order-1", e);
+    String message = singleMessage();
+    assertFalse(message.contains(CARD), message);
+    assertTrue(message.endsWith("for order-1 declined"), message);
+    assertNotNull(appender.list.get(0).getThrowableProxy());
+  }
+
+  private String singleMessage() {
+    assertEquals(1, appender.list.size());
+    return appender.list.get(0).getFormattedMessage();
+  }
+}
@@ -0,0 +1,44 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class LoggedThrowablesTest {
+
+  @Test
+  void throwableIsLoggedOnce() {
+    IllegalStateException e = new IllegalStateException("inner");
+    assertNull(LoggedThrowables.logOnce(e));
+    assertSame(e, LoggedThrowables.logOnce(e));
+    RuntimeException wrapper = new RuntimeException("outer", e);
+    assertSame(e, LoggedThrowables.logOnce(wrapper));
+  }
+
+  @Test
+  void throwableLoggedByAnotherThreadIsNotLoggedAgain() {
+    IllegalArgumentException e = new IllegalArgumentException("async");
+    CompletableFuture.runAsync(() -> LoggedThrowables.logOnce(e)).join();
+    assertSame(e, LoggedThrowables.logOnce(e));
+  }
+
+  @Test
+  void stacklessThrowableIsNotTracked() {
+    NullPointerException e = new NullPointerException();
+    e.setStackTrace(new StackTraceElement[0]);
+    assertNull(LoggedThrowables.logOnce(e));
+    assertNull(LoggedThrowables.logOnce(e));
+  }
+
+  @Test
+  void parametersAreNotRenderedForLoggedThrowable() {
+    IllegalStateException e = new IllegalStateException("failed");
+    assertEquals(LogUtil.methodWithException("save", e, "secret"),
+        LogUtil.errorMethodException(LoggedThrowablesTest.class, e, "save", "secret"));
+    assertEquals(LogUtil.methodWithException("save", e),
+        LogUtil.errorMethodException(LoggedThrowablesTest.class, e, "save", "secret"));
+  }
+}
@@ -0,0 +1,38 @@
+package org.nimdaved.util.yaolog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RenderContextTest {
+
+  private static String mask(Object value, int charsToShow) {
+    StringBuilder sb = new StringBuilder();
+    new RenderContext(sb, 10, 4).mask(value, charsToShow);
+    return sb.toString();
+  }
+
+  @Test
+  void shortValueIsMaskedInFull() {
+    assertEquals("******", mask("Secret#123", 6));
+    assertEquals("******", mask("1234", 0));
+    assertEquals("******", mask("", 6));
+  }
+
+  @Test
+  void defaultShowsNothing() {
+    assertEquals("******", mask("correct-horse-battery-staple", 0));
+  }
+
+  @Test
+  void longValueShowsAtMostQuarterAtEachEnd() {
+    // 16 characters, 6 requested, 4 shown at each end
+    assertEquals("4111******1111", mask("4111111111111111", 6));
+    assertEquals("ab******lm", mask("abcdefghijklm", 2));
+  }
+
+  @Test
+  void nullIsRendered() {
+    assertEquals("null", mask(null, 6));
+  }
+}